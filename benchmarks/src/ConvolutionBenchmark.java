@@ -0,0 +1,47 @@
+package src;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Single-threaded kernel application (Task1), one filter and the fused two-filter pass
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "--add-modules=jdk.incubator.vector", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class ConvolutionBenchmark {
+    @Param({ "1000", "4000", "10000" })
+    public int size;
+
+    private GrayImage matrix;
+    private final List<int[][]> kernels = Arrays.asList(Task1.SHARPEN_KERNEL, Task1.EDGE_DETECTION_KERNEL);
+
+    @Setup
+    public void setUp() {
+        matrix = Task1.generateMatrix(size, size, 42L);
+    }
+
+    @Benchmark
+    public GrayImage applyKernel() {
+        return Task1.applyKernel(matrix, Task1.SHARPEN_KERNEL);
+    }
+
+    @Benchmark
+    public List<GrayImage> applyKernelsFused() {
+        return Task1.applyKernels(matrix, kernels);
+    }
+}
@@ -0,0 +1,57 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Image export: the saveMatrixAsImage PNG path and the header-only PGM path
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+    @Param({ "1000", "4000" })
+    public int size;
+
+    private GrayImage matrix;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        matrix = Task1.generateMatrix(size, size, 42L);
+        directory = Files.createTempDirectory("sharpedges-export");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("matrix.png"));
+        Files.deleteIfExists(directory.resolve("matrix.pgm"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void saveMatrixAsImage() {
+        Task1.saveMatrixAsImage(matrix, directory.resolve("matrix.png").toString());
+    }
+
+    @Benchmark
+    public void writePgm() throws IOException {
+        ImageExporter.writePgm(matrix, directory.resolve("matrix.pgm"));
+    }
+}
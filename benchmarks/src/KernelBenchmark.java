@@ -0,0 +1,67 @@
+package src;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Single-threaded NxN kernels: the strategy each kernel picks (integral image for the
+// box, two 1-D passes for the separable binomial, direct sums for the unsharp mask)
+// against direct N^2 sums for the same kernel
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class KernelBenchmark {
+    @Param({ "box", "binomial", "unsharp" })
+    public String kernelType;
+
+    @Param({ "15" })
+    public int kernelSize;
+
+    private static final int IMAGE_SIZE = 2000;
+
+    private GrayImage matrix;
+    private GrayImage result;
+    private Kernel kernel;
+
+    @Setup
+    public void setUp() {
+        matrix = Task1.generateMatrix(IMAGE_SIZE, IMAGE_SIZE, 42L);
+        result = new GrayImage(IMAGE_SIZE, IMAGE_SIZE);
+        switch (kernelType) {
+            case "box":
+                kernel = Kernel.box(kernelSize);
+                break;
+            case "binomial":
+                kernel = Kernel.binomial(kernelSize);
+                break;
+            default:
+                kernel = Kernel.unsharpMask(kernelSize, 1);
+        }
+    }
+
+    @Benchmark
+    public GrayImage automatic() {
+        KernelConvolution.convolve(matrix, kernel, BorderMode.REFLECT, result, 0, 0, IMAGE_SIZE, IMAGE_SIZE);
+        return result;
+    }
+
+    @Benchmark
+    public GrayImage direct() {
+        KernelConvolution.convolve(matrix, kernel, Kernel.Strategy.DIRECT, BorderMode.REFLECT, result, 0, 0,
+                IMAGE_SIZE, IMAGE_SIZE);
+        return result;
+    }
+}
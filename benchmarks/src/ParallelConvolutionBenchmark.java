@@ -0,0 +1,50 @@
+package src;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Task2 kernel application across image sizes and thread counts
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "--add-modules=jdk.incubator.vector", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class ParallelConvolutionBenchmark {
+    @Param({ "1000", "4000", "10000" })
+    public int size;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    private GrayImage matrix;
+    private final List<int[][]> kernels = Arrays.asList(Task2.SHARPEN_KERNEL, Task2.EDGE_DETECTION_KERNEL);
+
+    @Setup
+    public void setUp() {
+        matrix = Task2.generateMatrix(size, size, 42L, threads);
+    }
+
+    @Benchmark
+    public GrayImage dynamicThreadKernelApplication() {
+        return Task2.dynamicThreadKernelApplication(matrix, Task2.SHARPEN_KERNEL, threads);
+    }
+
+    @Benchmark
+    public List<GrayImage> dynamicThreadKernelApplicationFused() {
+        return Task2.dynamicThreadKernelApplication(matrix, kernels, threads);
+    }
+}
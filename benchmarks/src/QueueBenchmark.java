@@ -0,0 +1,169 @@
+package src;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Enqueue/dequeue throughput of the Task3 and Task4 task queues.
+// Every operation enqueues one task and then dequeues one, so the queue can never
+// be empty while a thread waits in dequeue and no thread blocks forever. Console
+// output is redirected to a discarding stream so the terminal is not measured.
+// The *Batch benchmarks submit batchSize tasks at once and drain up to batchSize;
+// compare their "tasks" counter (tasks moved per microsecond) across batch sizes,
+// with batchSize=1 as the one-task-per-handoff baseline.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueueBenchmark {
+    private static final Runnable NO_OP = () -> {
+    };
+    private static final Task4.Task TASK = new Task4.Task(1);
+
+    private TaskQueue task3Queue;
+    private Task4.TaskQueue task4Queue;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() {
+        task3Queue = new TaskQueue();
+        task4Queue = new Task4.TaskQueue();
+        originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Batch {
+        @Param({ "1", "8", "64" })
+        public int batchSize;
+
+        TaskQueue task3Queue;
+        Task4.TaskQueue task4Queue;
+        List<Runnable> runnables;
+        List<Task4.Task> tasks;
+
+        @Setup
+        public void setUp() {
+            task3Queue = new TaskQueue();
+            task4Queue = new Task4.TaskQueue();
+            runnables = Collections.nCopies(batchSize, NO_OP);
+            tasks = Collections.nCopies(batchSize, TASK);
+        }
+    }
+
+    // Per-thread drain target, plus the tasks moved, reported as a throughput counter
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Moved {
+        public long tasks;
+        final List<Object> sink = new ArrayList<>();
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            tasks = 0;
+        }
+    }
+
+    @Benchmark
+    public Runnable task3EnqueueDequeue() throws InterruptedException {
+        task3Queue.enqueue(NO_OP);
+        return task3Queue.dequeue();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Runnable task3EnqueueDequeueContended() throws InterruptedException {
+        task3Queue.enqueue(NO_OP);
+        return task3Queue.dequeue();
+    }
+
+    @Benchmark
+    public Task4.Task task4AddGet() {
+        task4Queue.addTask(TASK);
+        return task4Queue.getTask();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Task4.Task task4AddGetContended() {
+        task4Queue.addTask(TASK);
+        return task4Queue.getTask();
+    }
+
+    @Benchmark
+    public int task3Batch(Batch batch, Moved moved) {
+        return moveBatch3(batch, moved);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int task3BatchContended(Batch batch, Moved moved) {
+        return moveBatch3(batch, moved);
+    }
+
+    @Benchmark
+    public int task4Batch(Batch batch, Moved moved) {
+        return moveBatch4(batch, moved);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int task4BatchContended(Batch batch, Moved moved) {
+        return moveBatch4(batch, moved);
+    }
+
+    private static int moveBatch3(Batch batch, Moved moved) {
+        int added = batch.task3Queue.offerAll(batch.runnables, 0);
+        int drained = 0;
+        while (drained < added) {
+            drained += batch.task3Queue.drainTo(moved.sink, added - drained);
+        }
+        moved.sink.clear();
+        moved.tasks += drained;
+        return drained;
+    }
+
+    // Each thread adds batchSize tasks before draining at most that many, so the
+    // queue always holds at least one task while a thread waits in drainTo
+    private static int moveBatch4(Batch batch, Moved moved) {
+        batch.task4Queue.submitAll(batch.tasks);
+        int drained = batch.task4Queue.drainTo(moved.sink, batch.batchSize);
+        moved.sink.clear();
+        moved.tasks += drained;
+        return drained;
+    }
+}
@@ -0,0 +1,153 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Many-image front end to the tiled engine, tuned for images per second rather than
+// single-image latency. Every job runs on the engine's one shared pool. An image of at
+// most wholeImagePixels is convolved whole by the single worker that picks it up: a
+// moderate image does not split well, and running many of them side by side keeps
+// every core busy without per-tile overhead. A larger image is tiled as usual, and its
+// tiles mix with the other jobs on the same workers. Results come back as
+// CompletableFutures, or through a callback per image for a stream of images.
+public final class BatchConvolution {
+    // Up to four default tiles run whole on one worker
+    public static final int DEFAULT_WHOLE_IMAGE_PIXELS = 4 * TiledConvolutionEngine.DEFAULT_TILE_SIZE
+            * TiledConvolutionEngine.DEFAULT_TILE_SIZE;
+
+    private final TiledConvolutionEngine engine;
+    private final int wholeImagePixels;
+
+    // Called once per image of submitAll, usually on the worker that finished it, but on
+    // the submitting thread if the image completed before its callback was attached;
+    // exactly one of results and failure is null
+    public interface Callback {
+        void completed(int index, GrayImage source, List<GrayImage> results, Throwable failure);
+    }
+
+    public BatchConvolution(int numThreads) {
+        this(TiledConvolutionEngine.forParallelism(numThreads), DEFAULT_WHOLE_IMAGE_PIXELS);
+    }
+
+    public BatchConvolution(TiledConvolutionEngine engine, int wholeImagePixels) {
+        if (wholeImagePixels < 0) {
+            throw new IllegalArgumentException("Whole-image threshold must not be negative.");
+        }
+        this.engine = engine;
+        this.wholeImagePixels = wholeImagePixels;
+    }
+
+    // Apply every 3x3 kernel to image in one fused pass, one result per kernel
+    public CompletableFuture<List<GrayImage>> submit(GrayImage image, List<int[][]> kernels) {
+        return submit(image, kernelArray(kernels));
+    }
+
+    // kernelArray has been checked already
+    private CompletableFuture<List<GrayImage>> submit(GrayImage image, int[][][] kernelArray) {
+        return CompletableFuture.supplyAsync(() -> {
+            GrayImage[] results = new GrayImage[kernelArray.length];
+            for (int k = 0; k < results.length; k++) {
+                results[k] = new GrayImage(image.width(), image.height());
+            }
+            if (isSmall(image)) {
+                Convolution.convolveAll(image, kernelArray, results, 0, 0, image.width(), image.height());
+            } else {
+                engine.applyAll(image, kernelArray, results);
+            }
+            return Arrays.asList(results);
+        }, engine.pool());
+    }
+
+    // Apply a kernel of any size with the given border mode
+    public CompletableFuture<GrayImage> submit(GrayImage image, Kernel kernel, BorderMode border) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!isSmall(image)) {
+                return engine.apply(image, kernel, border);
+            }
+            GrayImage result = new GrayImage(image.width(), image.height());
+            KernelConvolution.convolve(image, kernel, border, result, 0, 0, image.width(), image.height());
+            return result;
+        }, engine.pool());
+    }
+
+    // Submit each image of a stream, which may be produced lazily, and report it to
+    // callback as it completes. At most maxInFlight images are queued or running at
+    // once; the calling thread blocks for a free slot before taking the next image, so
+    // a long stream never holds more than maxInFlight sources and results in memory.
+    // The returned future completes when every image has been reported; a failed image
+    // goes to the callback and does not stop the rest.
+    public CompletableFuture<Void> submitAll(Iterator<GrayImage> images, List<int[][]> kernels, int maxInFlight,
+            Callback callback) throws InterruptedException {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("At least one image must be allowed in flight.");
+        }
+        int[][][] kernelArray = kernelArray(kernels);
+        Semaphore slots = new Semaphore(maxInFlight);
+        List<CompletableFuture<Void>> reported = new ArrayList<>();
+        AtomicInteger callbackFailures = new AtomicInteger();
+        int index = 0;
+        while (images.hasNext()) {
+            slots.acquire();
+            CompletableFuture<Void> done;
+            try {
+                GrayImage image = images.next();
+                int imageIndex = index++;
+                done = submit(image, kernelArray).handle((results, failure) -> {
+                    try {
+                        callback.completed(imageIndex, image, results, unwrap(failure));
+                    } catch (RuntimeException e) {
+                        callbackFailures.incrementAndGet();
+                    } finally {
+                        slots.release();
+                    }
+                    return null;
+                });
+            } catch (RuntimeException | Error e) {
+                // Nothing was submitted, so no callback will return the slot
+                slots.release();
+                throw e;
+            }
+            reported.add(done);
+            // Completed jobs are not kept, so the list stays near maxInFlight long
+            if (reported.size() > 2 * maxInFlight) {
+                reported.removeIf(CompletableFuture::isDone);
+            }
+        }
+        return CompletableFuture.allOf(reported.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+            if (callbackFailures.get() > 0) {
+                throw new IllegalStateException(callbackFailures.get() + " batch callbacks threw an exception");
+            }
+        });
+    }
+
+    // Checked once up front, so a bad kernel list fails the call itself whatever the
+    // image sizes, not each job, and the whole-image path (which would accept no kernels)
+    // agrees with the tiled engine
+    private static int[][][] kernelArray(List<int[][]> kernels) {
+        if (kernels.isEmpty()) {
+            throw new IllegalArgumentException("At least one kernel is required.");
+        }
+        int[][][] kernelArray = kernels.toArray(new int[0][][]);
+        for (int[][] kernel : kernelArray) {
+            Convolution.checkKernel(kernel);
+        }
+        return kernelArray;
+    }
+
+    boolean isSmall(GrayImage image) {
+        return (long) image.width() * image.height() <= wholeImagePixels;
+    }
+
+    // supplyAsync wraps a job's exception in a CompletionException
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+    }
+}
@@ -0,0 +1,44 @@
+package src;
+
+import java.util.Locale;
+
+// How pixels outside the image are read when a kernel overlaps the edge.
+// Only the Kernel paths (KernelConvolution and the engine's Kernel overloads) take a
+// BorderMode. The int[][] 3x3 paths predate it and keep their black one-pixel border,
+// which the gold standard, tile digests and fault-tolerant runs all expect. Wrap a 3x3
+// kernel in Kernel.of to keep its interior pixels and read the border through a mode.
+public enum BorderMode {
+    // Outside pixels are 0 (black)
+    ZERO,
+    // Outside pixels repeat the nearest edge pixel: aaa|abcd|ddd
+    CLAMP,
+    // Outside pixels mirror the image without repeating the edge pixel: cb|abcd|cb
+    REFLECT;
+
+    // Source index for coordinate i along an axis of length size, or -1 for a ZERO pixel
+    int map(int i, int size) {
+        if (i >= 0 && i < size) {
+            return i;
+        }
+        switch (this) {
+            case ZERO:
+                return -1;
+            case CLAMP:
+                return i < 0 ? 0 : size - 1;
+            default:
+                if (size == 1) {
+                    return 0;
+                }
+                // Mirroring repeats with period 2 * (size - 1), which also covers kernels
+                // wider than the image
+                int period = 2 * (size - 1);
+                int folded = Math.floorMod(i, period);
+                return folded < size ? folded : period - folded;
+        }
+    }
+
+    // Accepts the constant names in any case
+    public static BorderMode parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,98 @@
+package src;
+
+// 3x3 convolution over a rectangular region of a GrayImage.
+// This is the per-tile kernel used by the parallel engines; Task1.applyKernel
+// remains the independent single-threaded gold standard they are checked against.
+// When the optional Vector API backend (src.vector) is compiled and the
+// jdk.incubator.vector module is available it is picked up automatically;
+// otherwise, or with -Dsharpedges.scalar=true, the scalar loop below is used.
+public final class Convolution {
+    private static final ConvolutionBackend VECTOR_BACKEND = loadVectorBackend();
+
+    private Convolution() {
+    }
+
+    private static ConvolutionBackend loadVectorBackend() {
+        if (Boolean.getBoolean("sharpedges.scalar")) {
+            return null;
+        }
+        try {
+            return (ConvolutionBackend) Class.forName("src.vector.VectorConvolution")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null; // Backend not compiled or incubator module not added
+        }
+    }
+
+    // Human-readable name of the backend in use, for logging
+    public static String backendName() {
+        return VECTOR_BACKEND != null ? VECTOR_BACKEND.name() : "scalar";
+    }
+
+    // Reject anything that is not a 3x3 kernel
+    public static void checkKernel(int[][] kernel) {
+        if (kernel.length != 3 || kernel[0].length != 3 || kernel[1].length != 3 || kernel[2].length != 3) {
+            throw new IllegalArgumentException("Only 3x3 kernels are supported.");
+        }
+    }
+
+    // Convolve the region [x0, x1) x [y0, y1) of source into result.
+    // The region is clipped to the image interior, so the one-pixel border is
+    // never written and stays black, exactly like Task1.applyKernel.
+    public static void convolve(GrayImage source, int[][] kernel, GrayImage result, int x0, int y0, int x1, int y1) {
+        if (VECTOR_BACKEND != null) {
+            VECTOR_BACKEND.convolve(source, kernel, result, x0, y0, x1, y1);
+        } else {
+            convolveScalar(source, kernel, result, x0, y0, x1, y1);
+        }
+    }
+
+    // Scalar reference loop; also covers the columns a vector backend cannot fill
+    public static void convolveScalar(GrayImage source, int[][] kernel, GrayImage result,
+            int x0, int y0, int x1, int y1) {
+        int startRow = Math.max(y0, 1);
+        int endRow = Math.min(y1, source.height() - 1);
+        int startCol = Math.max(x0, 1);
+        int endCol = Math.min(x1, source.width() - 1);
+
+        byte[] in = source.pixels();
+        byte[] out = result.pixels();
+        int k00 = kernel[0][0], k01 = kernel[0][1], k02 = kernel[0][2];
+        int k10 = kernel[1][0], k11 = kernel[1][1], k12 = kernel[1][2];
+        int k20 = kernel[2][0], k21 = kernel[2][1], k22 = kernel[2][2];
+
+        for (int i = startRow; i < endRow; i++) {
+            int above = source.rowOffset(i - 1);
+            int center = source.rowOffset(i);
+            int below = source.rowOffset(i + 1);
+            int target = result.rowOffset(i);
+            for (int j = startCol; j < endCol; j++) {
+                int sum = (in[above + j - 1] & 0xFF) * k00 + (in[above + j] & 0xFF) * k01
+                        + (in[above + j + 1] & 0xFF) * k02
+                        + (in[center + j - 1] & 0xFF) * k10 + (in[center + j] & 0xFF) * k11
+                        + (in[center + j + 1] & 0xFF) * k12
+                        + (in[below + j - 1] & 0xFF) * k20 + (in[below + j] & 0xFF) * k21
+                        + (in[below + j + 1] & 0xFF) * k22;
+                out[target + j] = (byte) Math.min(Math.max(sum, 0), 255); // Clamp values to 0-255
+            }
+        }
+    }
+
+    // Convolve the same region with several 3x3 kernels in one traversal, results[k]
+    // receiving kernels[k]. The region is walked once row by row and every kernel is
+    // applied to a row before moving on, so the three source rows are fetched from
+    // memory once and re-read from cache for the remaining kernels.
+    public static void convolveAll(GrayImage source, int[][][] kernels, GrayImage[] results,
+            int x0, int y0, int x1, int y1) {
+        for (int[][] kernel : kernels) {
+            checkKernel(kernel);
+        }
+        int startRow = Math.max(y0, 1);
+        int endRow = Math.min(y1, source.height() - 1);
+        for (int i = startRow; i < endRow; i++) {
+            for (int k = 0; k < kernels.length; k++) {
+                convolve(source, kernels[k], results[k], x0, i, x1, i + 1);
+            }
+        }
+    }
+}
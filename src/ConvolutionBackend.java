@@ -0,0 +1,10 @@
+package src;
+
+// Pluggable implementation of the 3x3 region convolution used by Convolution.
+// Implementations must produce output bit-identical to Convolution.convolveScalar.
+public interface ConvolutionBackend {
+    // Convolve [x0, x1) x [y0, y1) of source into result, clipped to the image interior
+    void convolve(GrayImage source, int[][] kernel, GrayImage result, int x0, int y0, int x1, int y1);
+
+    String name();
+}
@@ -0,0 +1,202 @@
+package src;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous, allocation-free event log for the pools and workers.
+// Worker threads record structured events (timestamp, thread id, task id, event type
+// and one detail value) into a preallocated ring buffer: one CAS claims a slot, the
+// fields are written into parallel primitive arrays, and the slot is published. No
+// string is built and no lock is taken on the recording thread. A background daemon
+// drains the buffer, formats the events and writes them to the console. If producers
+// outrun the drainer, events are dropped and counted rather than blocking workers.
+//
+// The level is read from -Dsharpedges.log=off|info|debug (default info); a disabled
+// event costs one field read and a compare. Per-task events are debug level: at info,
+// the pools' periodic metrics summaries stand in for them.
+public final class EventLog {
+    public enum Level {
+        OFF, INFO, DEBUG
+    }
+
+    // Message templates receive the thread name, task id and detail, in that order
+    public enum EventType {
+        WORKER_STARTED(Level.INFO, "Thread %s started."),
+        WORKER_STOPPED(Level.INFO, "%s has finished."),
+        TASK_SUBMITTED(Level.DEBUG, "Task %2$d submitted by %1$s."),
+        TASK_STARTED(Level.DEBUG, "%s dequeued Task ID: %d."),
+        TASK_COMPLETED(Level.DEBUG, "%s successfully processed Task ID: %d."),
+        TASK_FAILED(Level.DEBUG, "%s failed to execute Task ID: %d (Attempt %d)."),
+        TASK_REJECTED(Level.DEBUG, "Task %2$d rejected by the full queue (submitted by %1$s)."),
+        TASK_DROPPED(Level.DEBUG, "Task %2$d dropped from the full queue by %1$s."),
+        TASK_RETRY_SCHEDULED(Level.DEBUG, "%s scheduled Task ID: %d for retry in %d ms."),
+        SHUTDOWN_REQUESTED(Level.INFO, "Shutting down thread pool (requested by %s)."),
+        VIRTUAL_THREADS_UNAVAILABLE(Level.INFO,
+                "Virtual threads are not available; using one platform thread per task (at most %3$d at once).");
+
+        final Level level;
+        final String template;
+
+        EventType(Level level, String template) {
+            this.level = level;
+            this.template = template;
+        }
+    }
+
+    private static final int CAPACITY = 1 << 16;
+    private static final int MASK = CAPACITY - 1;
+    private static final EventType[] TYPES = EventType.values();
+
+    private static volatile int threshold = parseLevel(System.getProperty("sharpedges.log", "info")).ordinal();
+
+    // Ring buffer as parallel arrays; published[i] holds the sequence stored in slot i
+    private static final long[] timestamps = new long[CAPACITY];
+    private static final long[] threadIds = new long[CAPACITY];
+    private static final long[] taskIds = new long[CAPACITY];
+    private static final int[] details = new int[CAPACITY];
+    private static final byte[] types = new byte[CAPACITY];
+    private static final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong claimed = new AtomicLong();
+    private static final AtomicLong drained = new AtomicLong();
+    // Events written to out; trails drained, which frees slots as soon as they are formatted
+    private static final AtomicLong printed = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+
+    private static final ConcurrentHashMap<Long, String> threadNames = new ConcurrentHashMap<>();
+    private static volatile PrintStream out = System.out;
+    private static volatile Thread drainer;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    private EventLog() {
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static boolean isEnabled(EventType type) {
+        return type.level.ordinal() <= threshold;
+    }
+
+    // Redirect formatted output, e.g. to discard it in benchmarks
+    public static void setOutput(PrintStream stream) {
+        out = stream;
+    }
+
+    // Remember a thread's name so drained events can show it instead of its id
+    public static void registerThread(Thread thread) {
+        threadNames.put(thread.getId(), thread.getName());
+    }
+
+    public static void record(EventType type, long taskId) {
+        record(type, taskId, 0);
+    }
+
+    // Record an event from the calling thread; never blocks and never allocates
+    public static void record(EventType type, long taskId, int detail) {
+        if (type.level.ordinal() > threshold) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - drained.get() >= CAPACITY) {
+                dropped.incrementAndGet(); // Buffer full: drop rather than stall the worker
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & MASK;
+        timestamps[slot] = System.currentTimeMillis();
+        threadIds[slot] = Thread.currentThread().getId();
+        taskIds[slot] = taskId;
+        details[slot] = detail;
+        types[slot] = (byte) type.ordinal();
+        published.lazySet(slot, sequence); // Release the plain writes above to the drainer
+        if (drainer == null) {
+            startDrainer();
+        }
+    }
+
+    // Wait until every event recorded so far has been written out
+    public static void flush() {
+        long target = claimed.get();
+        if (drainer == null) {
+            return; // Nothing has been recorded yet
+        }
+        while (printed.get() < target) {
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(100_000L);
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            out.println("[EventLog] " + lost + " events dropped (ring buffer full).");
+        }
+        out.flush();
+    }
+
+    private static synchronized void startDrainer() {
+        if (drainer != null) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            while (true) {
+                if (!drain()) {
+                    LockSupport.parkNanos(1_000_000L);
+                }
+            }
+        }, "event-log-drainer");
+        thread.setDaemon(true);
+        thread.start();
+        drainer = thread;
+    }
+
+    // Format and print every published event; returns false if there was none.
+    // Only the drainer thread calls this.
+    private static boolean drain() {
+        long next = drained.get();
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            int slot = (int) next & MASK;
+            if (published.get(slot) != next) {
+                break; // Not yet published
+            }
+            EventType type = TYPES[types[slot]];
+            String name = threadNames.get(threadIds[slot]);
+            if (name == null) {
+                name = "thread#" + threadIds[slot];
+            }
+            LocalTime time = Instant.ofEpochMilli(timestamps[slot]).atZone(ZoneId.systemDefault()).toLocalTime();
+            text.append('[').append(time).append("] ")
+                    .append(String.format(type.template, name, taskIds[slot], details[slot]))
+                    .append(System.lineSeparator());
+            next++;
+            drained.lazySet(next); // Hands the slot back to producers
+        }
+        if (text.length() == 0) {
+            return false;
+        }
+        out.print(text);
+        printed.set(next);
+        return true;
+    }
+
+    private static Level parseLevel(String value) {
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package src;
+
+// Reproducible failure injection for the Task 4 simulation.
+// Every decision is a keyed SplitMix hash of (run seed, task id, attempt, decision),
+// so workers share no random state, nothing is allocated per decision, and the failure
+// schedule depends only on the seed and configuration, never on which worker picks up
+// which task or when.
+// Models can be combined:
+// - a base failure probability (independent Bernoulli trials)
+// - bursts: task ids are grouped into windows, and a window is "bad" with some
+//   probability, failing its tasks at a much higher rate (correlated failures)
+// - per-class failure probabilities, indexed by the task's class
+// - latency spikes: an attempt occasionally takes extra time before its outcome
+public final class FailureInjector {
+    // Separate streams for the independent decisions made about one attempt
+    private static final long FAILURE_STREAM = 1;
+    private static final long LATENCY_STREAM = 2;
+    private static final long BURST_STREAM = 3;
+
+    private final long seed;
+    private final double failureProbability;
+    private final double[] classFailureProbabilities; // null: every class uses failureProbability
+    private final int burstLength; // 0: no bursts
+    private final double burstProbability;
+    private final double burstFailureProbability;
+    private final double spikeProbability;
+    private final long spikeMillis;
+
+    private FailureInjector(long seed, double failureProbability, double[] classFailureProbabilities,
+            int burstLength, double burstProbability, double burstFailureProbability,
+            double spikeProbability, long spikeMillis) {
+        this.seed = seed;
+        this.failureProbability = failureProbability;
+        this.classFailureProbabilities = classFailureProbabilities;
+        this.burstLength = burstLength;
+        this.burstProbability = burstProbability;
+        this.burstFailureProbability = burstFailureProbability;
+        this.spikeProbability = spikeProbability;
+        this.spikeMillis = spikeMillis;
+    }
+
+    // Each attempt fails independently with failureProbability
+    public static FailureInjector bernoulli(long seed, double failureProbability) {
+        checkProbability(failureProbability);
+        return new FailureInjector(seed, failureProbability, null, 0, 0.0, 0.0, 0.0, 0);
+    }
+
+    // Build an injector from a model description such as "burst=20:0.1:0.95,classes=0.1/0.5/0.9,spike=0.05:200":
+    // burst=<window>:<probability a window is bad>:<failure probability inside it>,
+    // classes=<failure probability per class, '/'-separated>,
+    // spike=<probability of a spike>:<extra latency ms>. An empty spec is plain Bernoulli.
+    public static FailureInjector fromSpec(String spec, long seed, double failureProbability) {
+        FailureInjector injector = bernoulli(seed, failureProbability);
+        if (spec == null || spec.trim().isEmpty()) {
+            return injector;
+        }
+        for (String part : spec.split(",")) {
+            String[] keyValue = part.trim().split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Expected model=parameters but got: " + part);
+            }
+            String[] values = keyValue[1].split(keyValue[0].equals("classes") ? "/" : ":");
+            switch (keyValue[0]) {
+                case "burst":
+                    requireValues(part, values, 3);
+                    injector = injector.withBursts(Integer.parseInt(values[0]), Double.parseDouble(values[1]),
+                            Double.parseDouble(values[2]));
+                    break;
+                case "classes":
+                    double[] rates = new double[values.length];
+                    for (int i = 0; i < values.length; i++) {
+                        rates[i] = Double.parseDouble(values[i]);
+                    }
+                    injector = injector.withClassFailureProbabilities(rates);
+                    break;
+                case "spike":
+                    requireValues(part, values, 2);
+                    injector = injector.withLatencySpikes(Double.parseDouble(values[0]), Long.parseLong(values[1]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown failure model: " + keyValue[0]);
+            }
+        }
+        return injector;
+    }
+
+    // Tasks in a window of burstLength consecutive ids share one good/bad state
+    public FailureInjector withBursts(int burstLength, double burstProbability, double burstFailureProbability) {
+        if (burstLength <= 0) {
+            throw new IllegalArgumentException("Burst length must be positive.");
+        }
+        checkProbability(burstProbability);
+        checkProbability(burstFailureProbability);
+        return new FailureInjector(seed, failureProbability, classFailureProbabilities, burstLength,
+                burstProbability, burstFailureProbability, spikeProbability, spikeMillis);
+    }
+
+    // Class c fails with probabilities[c % probabilities.length] outside bursts
+    public FailureInjector withClassFailureProbabilities(double... probabilities) {
+        if (probabilities.length == 0) {
+            throw new IllegalArgumentException("At least one class failure probability is required.");
+        }
+        for (double probability : probabilities) {
+            checkProbability(probability);
+        }
+        return new FailureInjector(seed, failureProbability, probabilities.clone(), burstLength, burstProbability,
+                burstFailureProbability, spikeProbability, spikeMillis);
+    }
+
+    public FailureInjector withLatencySpikes(double spikeProbability, long spikeMillis) {
+        checkProbability(spikeProbability);
+        if (spikeMillis < 0) {
+            throw new IllegalArgumentException("Spike latency must not be negative.");
+        }
+        return new FailureInjector(seed, failureProbability, classFailureProbabilities, burstLength,
+                burstProbability, burstFailureProbability, spikeProbability, spikeMillis);
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    // Number of task classes with their own failure probability (1 if not configured)
+    public int taskClasses() {
+        return classFailureProbabilities == null ? 1 : classFailureProbabilities.length;
+    }
+
+    // Whether attempt (1 for the first try) at taskId fails
+    public boolean shouldFail(long taskId, int taskClass, int attempt) {
+        double probability = classFailureProbabilities == null
+                ? failureProbability
+                : classFailureProbabilities[Math.floorMod(taskClass, classFailureProbabilities.length)];
+        if (burstLength > 0 && inBurst(taskId)) {
+            probability = burstFailureProbability;
+        }
+        return uniform(taskId, attempt, FAILURE_STREAM) < probability;
+    }
+
+    // Extra latency for this attempt in milliseconds, 0 unless a spike hits it
+    public long latencyMillis(long taskId, int attempt) {
+        if (spikeProbability == 0.0) {
+            return 0;
+        }
+        return uniform(taskId, attempt, LATENCY_STREAM) < spikeProbability ? spikeMillis : 0;
+    }
+
+    private boolean inBurst(long taskId) {
+        long window = Math.floorDiv(taskId, (long) burstLength);
+        return uniform(window, 0, BURST_STREAM) < burstProbability;
+    }
+
+    // Uniform in [0, 1) for one decision; the same value the first nextDouble() of a
+    // SplittableRandom seeded with the keyed seed would return, without creating one
+    private double uniform(long key, int attempt, long stream) {
+        long mixed = SplitMix.mix64(seed + key * SplitMix.GOLDEN_GAMMA);
+        long keyed = SplitMix.mix64(mixed + (attempt * 4L + stream) * SplitMix.GOLDEN_GAMMA);
+        return SplitMix.toDouble(SplitMix.mix64(keyed + SplitMix.GOLDEN_GAMMA));
+    }
+
+    private static void requireValues(String part, String[] values, int count) {
+        if (values.length != count) {
+            throw new IllegalArgumentException("Expected " + count + " parameters in: " + part);
+        }
+    }
+
+    private static void checkProbability(double probability) {
+        if (probability < 0.0 || probability > 1.0) {
+            throw new IllegalArgumentException("Probabilities must be between 0 and 1: " + probability);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Bernoulli");
+        if (classFailureProbabilities != null) {
+            text.append(", per-class rates ").append(java.util.Arrays.toString(classFailureProbabilities));
+        }
+        if (burstLength > 0) {
+            text.append(String.format(", bursts of %d tasks (p=%.2f, failure rate %.2f)", burstLength,
+                    burstProbability, burstFailureProbability));
+        }
+        if (spikeProbability > 0.0) {
+            text.append(String.format(", latency spikes of %d ms (p=%.2f)", spikeMillis, spikeProbability));
+        }
+        return text.toString();
+    }
+}
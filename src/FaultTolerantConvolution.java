@@ -0,0 +1,360 @@
+package src;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Tile-level fault tolerance for the tiled engine.
+// Every tile runs as its own attempt on the engine's pool and reports back to the
+// calling thread, which records finished tiles in a checkpoint BitSet. A tile whose
+// attempt throws, or runs longer than the tile timeout, is retried on whichever worker
+// is free, backing off per the RetryPolicy as Task 4 does, until it succeeds or runs
+// out of retries. A failure therefore costs one tile, not the whole image. When
+// attempts can overlap (timeouts or injected faults), each one convolves into its
+// worker's scratch buffers and copies its tile in only after winning the tile with a
+// CAS, so an attempt that timed out and lost never writes into the results, not even
+// after applyAll has returned. Otherwise attempts write into the results directly.
+public final class FaultTolerantConvolution {
+    // How often the calling thread looks for timed-out attempts
+    private static final long POLL_MILLIS = 10;
+    // Tile ownership states
+    private static final int OPEN = 0;
+    private static final int TAKEN = 1;
+    private static final int CLOSED = 2;
+
+    // Per-worker tile buffers for attempts that must not write into the results directly
+    private static final ThreadLocal<byte[][]> SCRATCH = ThreadLocal.withInitial(() -> new byte[0][]);
+
+    private final TiledConvolutionEngine engine;
+    private final RetryPolicy retryPolicy;
+    private final long tileTimeoutNanos;
+    private final FailureInjector failureInjector;
+
+    // tileTimeoutMillis 0 disables timeouts
+    public FaultTolerantConvolution(TiledConvolutionEngine engine, RetryPolicy retryPolicy, long tileTimeoutMillis) {
+        this(engine, retryPolicy, tileTimeoutMillis, null);
+    }
+
+    // failureInjector, if not null, fails and delays tile attempts keyed by (tile, attempt)
+    public FaultTolerantConvolution(TiledConvolutionEngine engine, RetryPolicy retryPolicy, long tileTimeoutMillis,
+            FailureInjector failureInjector) {
+        if (tileTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Tile timeout must not be negative.");
+        }
+        this.engine = engine;
+        this.retryPolicy = retryPolicy;
+        this.tileTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(tileTimeoutMillis);
+        this.failureInjector = failureInjector;
+    }
+
+    // Fused pass writing kernels[k] into results[k]. Tiles already set in completed are
+    // skipped and every tile that finishes is set, so after a run that gave up on some
+    // tiles the same call with the same BitSet recomputes only those.
+    public Report applyAll(GrayImage source, int[][][] kernels, GrayImage[] results, BitSet completed)
+            throws InterruptedException {
+        TiledConvolutionEngine.checkResults(source, kernels, results);
+        long start = System.nanoTime();
+        int tileWidth = engine.tileWidth();
+        int tileHeight = engine.tileHeight();
+        int tilesX = (source.width() + tileWidth - 1) / tileWidth;
+        int tiles = tilesX * ((source.height() + tileHeight - 1) / tileHeight);
+
+        Run run = new Run(source, kernels, results, tilesX, tiles);
+        Set<Attempt> running = new LinkedHashSet<>();
+        PriorityQueue<Attempt> delayed = new PriorityQueue<>(
+                (a, b) -> Long.compare(a.readyAt, b.readyAt));
+        int[] latestAttempt = new int[tiles];
+        BitSet gaveUp = new BitSet(tiles);
+        int remaining = 0;
+        int retries = 0;
+        int timeouts = 0;
+
+        for (int tile = completed.nextClearBit(0); tile < tiles; tile = completed.nextClearBit(tile + 1)) {
+            Attempt attempt = new Attempt(run, tile, 1);
+            latestAttempt[tile] = 1;
+            running.add(attempt);
+            engine.pool().execute(attempt);
+            remaining++;
+        }
+
+        long lastTimeoutCheck = System.nanoTime();
+        while (remaining > 0) {
+            long now = System.nanoTime();
+            while (!delayed.isEmpty() && delayed.peek().readyAt <= now) {
+                Attempt retry = delayed.poll();
+                running.add(retry);
+                engine.pool().execute(retry);
+            }
+            long waitNanos = TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS);
+            if (!delayed.isEmpty()) {
+                waitNanos = Math.max(0, Math.min(waitNanos, delayed.peek().readyAt - now));
+            }
+
+            List<Attempt> failures = new ArrayList<>();
+            Attempt outcome = run.finished.poll(waitNanos, TimeUnit.NANOSECONDS);
+            while (outcome != null) {
+                running.remove(outcome);
+                int tile = outcome.tile;
+                if (outcome.accepted) {
+                    // The one attempt that won the tile completes it, even one already timed
+                    // out or given up on
+                    completed.set(tile);
+                    if (gaveUp.get(tile)) {
+                        gaveUp.clear(tile);
+                    } else {
+                        remaining--;
+                    }
+                } else if (outcome.error != null && outcome.number == latestAttempt[tile] && !gaveUp.get(tile)
+                        && run.owners.get(tile) == OPEN) {
+                    failures.add(outcome);
+                }
+                outcome = run.finished.poll();
+            }
+
+            now = System.nanoTime();
+            if (tileTimeoutNanos > 0 && now - lastTimeoutCheck >= TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS)) {
+                lastTimeoutCheck = now;
+                for (Iterator<Attempt> it = running.iterator(); it.hasNext();) {
+                    Attempt attempt = it.next();
+                    long startedAt = attempt.startedAt;
+                    if (startedAt != 0 && now - startedAt > tileTimeoutNanos
+                            && attempt.number == latestAttempt[attempt.tile] && run.owners.get(attempt.tile) == OPEN) {
+                        // Left running: its worker is busy either way, and it can still win
+                        // the tile if it finishes first
+                        it.remove();
+                        timeouts++;
+                        failures.add(attempt);
+                    }
+                }
+            }
+
+            for (Attempt failure : failures) {
+                int tile = failure.tile;
+                if (failure.number > retryPolicy.maxRetries()) {
+                    gaveUp.set(tile);
+                    remaining--;
+                    continue;
+                }
+                retries++;
+                latestAttempt[tile] = failure.number + 1;
+                Attempt retry = new Attempt(run, tile, failure.number + 1);
+                retry.readyAt = now + TimeUnit.MILLISECONDS.toNanos(retryPolicy.delayMillis(failure.number));
+                delayed.add(retry);
+            }
+        }
+
+        // Close the given-up tiles so no attempt still running writes after we return.
+        // An attempt that already won one is copying it; wait for it and count the tile.
+        int winners = 0;
+        for (int tile = gaveUp.nextSetBit(0); tile >= 0; tile = gaveUp.nextSetBit(tile + 1)) {
+            if (!run.owners.compareAndSet(tile, OPEN, CLOSED)) {
+                winners++;
+            }
+        }
+        while (winners > 0) {
+            Attempt outcome = run.finished.take();
+            if (outcome.accepted && gaveUp.get(outcome.tile)) {
+                gaveUp.clear(outcome.tile);
+                completed.set(outcome.tile);
+                winners--;
+            }
+        }
+
+        List<Rectangle> failedRegions = new ArrayList<>();
+        for (int tile = gaveUp.nextSetBit(0); tile >= 0; tile = gaveUp.nextSetBit(tile + 1)) {
+            failedRegions.add(new Rectangle((tile % tilesX) * tileWidth, (tile / tilesX) * tileHeight, tileWidth,
+                    tileHeight).intersection(new Rectangle(0, 0, source.width(), source.height())));
+        }
+        return new Report(tiles, completed.cardinality(), retries, timeouts, failedRegions,
+                System.nanoTime() - start);
+    }
+
+    // State shared by the attempts of one applyAll call
+    private final class Run {
+        final GrayImage source;
+        final int[][][] kernels;
+        final GrayImage[] results;
+        final int tilesX;
+        // Per tile: OPEN, TAKEN by the attempt that copies it in, or CLOSED after giving up
+        final AtomicIntegerArray owners;
+        final BlockingQueue<Attempt> finished = new LinkedBlockingQueue<>();
+        // Without timeouts or injected delays no two attempts at a tile overlap, so
+        // attempts can convolve straight into the results
+        final boolean direct = tileTimeoutNanos == 0 && failureInjector == null;
+
+        Run(GrayImage source, int[][][] kernels, GrayImage[] results, int tilesX, int tiles) {
+            this.source = source;
+            this.kernels = kernels;
+            this.results = results;
+            this.tilesX = tilesX;
+            this.owners = new AtomicIntegerArray(tiles);
+        }
+    }
+
+    // One attempt at one tile; reports itself to finished when it ends, failed or not.
+    // Unless the run is direct, the tile and its one-pixel halo are convolved into the
+    // worker's scratch buffers, and the attempt copies them into the results only if it
+    // takes the tile, so a timed-out attempt that loses never writes into them.
+    private final class Attempt implements Runnable {
+        final Run run;
+        final int tile;
+        final int number;
+        volatile long startedAt;
+        long readyAt;
+        Throwable error;
+        boolean accepted;
+
+        Attempt(Run run, int tile, int number) {
+            this.run = run;
+            this.tile = tile;
+            this.number = number;
+        }
+
+        @Override
+        public void run() {
+            startedAt = System.nanoTime();
+            try {
+                if (failureInjector != null) {
+                    long delay = failureInjector.latencyMillis(tile, number);
+                    if (delay > 0) {
+                        Thread.sleep(delay);
+                    }
+                    if (failureInjector.shouldFail(tile, tile % failureInjector.taskClasses(), number)) {
+                        throw new IllegalStateException("Injected failure in tile " + tile + " (attempt " + number
+                                + ")");
+                    }
+                }
+                GrayImage source = run.source;
+                int x0 = (tile % run.tilesX) * engine.tileWidth();
+                int y0 = (tile / run.tilesX) * engine.tileHeight();
+                int x1 = Math.min(x0 + engine.tileWidth(), source.width());
+                int y1 = Math.min(y0 + engine.tileHeight(), source.height());
+                if (run.direct) {
+                    Convolution.convolveAll(source, run.kernels, run.results, x0, y0, x1, y1);
+                    accepted = true;
+                } else {
+                    // At the image edge there is no halo, and the image border stays unwritten
+                    // as it does in the engine
+                    int wx0 = Math.max(x0 - 1, 0);
+                    int wy0 = Math.max(y0 - 1, 0);
+                    int width = Math.min(x1 + 1, source.width()) - wx0;
+                    int height = Math.min(y1 + 1, source.height()) - wy0;
+                    GrayImage window = new GrayImage(source.pixels(), source.rowOffset(wy0) + wx0, width, height,
+                            source.stride());
+                    GrayImage[] buffers = scratch(run.kernels.length, width, height);
+                    Convolution.convolveAll(window, run.kernels, buffers, x0 - wx0, y0 - wy0, x1 - wx0, y1 - wy0);
+                    if (run.owners.compareAndSet(tile, OPEN, TAKEN)) {
+                        try {
+                            copy(buffers, wx0, wy0, x0, y0, x1, y1);
+                        } catch (RuntimeException | Error e) {
+                            run.owners.set(tile, OPEN); // Let a retry take the tile
+                            throw e;
+                        }
+                        accepted = true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = e;
+            } catch (RuntimeException | Error e) {
+                error = e;
+            }
+            run.finished.add(this); // Publishes error and accepted to the calling thread
+        }
+
+        // Copy the tile [x0, x1) x [y0, y1), minus the image border, from buffers whose
+        // origin is (wx0, wy0) in the image
+        private void copy(GrayImage[] buffers, int wx0, int wy0, int x0, int y0, int x1, int y1) {
+            GrayImage source = run.source;
+            x0 = Math.max(x0, 1);
+            y0 = Math.max(y0, 1);
+            x1 = Math.min(x1, source.width() - 1);
+            y1 = Math.min(y1, source.height() - 1);
+            for (int k = 0; k < buffers.length; k++) {
+                GrayImage from = buffers[k];
+                GrayImage to = run.results[k];
+                for (int y = y0; y < y1; y++) {
+                    System.arraycopy(from.pixels(), from.rowOffset(y - wy0) + x0 - wx0, to.pixels(),
+                            to.rowOffset(y) + x0, x1 - x0);
+                }
+            }
+        }
+    }
+
+    // count width x height views of this thread's scratch buffers, grown on demand
+    private static GrayImage[] scratch(int count, int width, int height) {
+        byte[][] buffers = SCRATCH.get();
+        if (buffers.length < count || buffers[0].length < width * height) {
+            buffers = new byte[Math.max(count, buffers.length)][Math.max(width * height,
+                    buffers.length == 0 ? 0 : buffers[0].length)];
+            SCRATCH.set(buffers);
+        }
+        GrayImage[] views = new GrayImage[count];
+        for (int k = 0; k < count; k++) {
+            views[k] = new GrayImage(buffers[k], 0, width, height, width);
+        }
+        return views;
+    }
+
+    public static final class Report {
+        private final int tiles;
+        private final int completedTiles;
+        private final int retries;
+        private final int timeouts;
+        private final List<Rectangle> failedRegions;
+        private final long elapsedNanos;
+
+        Report(int tiles, int completedTiles, int retries, int timeouts, List<Rectangle> failedRegions,
+                long elapsedNanos) {
+            this.tiles = tiles;
+            this.completedTiles = completedTiles;
+            this.retries = retries;
+            this.timeouts = timeouts;
+            this.failedRegions = failedRegions;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int tiles() {
+            return tiles;
+        }
+
+        public int completedTiles() {
+            return completedTiles;
+        }
+
+        public int retries() {
+            return retries;
+        }
+
+        public int timeouts() {
+            return timeouts;
+        }
+
+        // Tiles given up on after their last retry; their result pixels are not valid
+        public List<Rectangle> failedRegions() {
+            return new ArrayList<>(failedRegions);
+        }
+
+        public boolean isComplete() {
+            return completedTiles == tiles;
+        }
+
+        public long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public String summary() {
+            return String.format("[Tiles] %d of %d completed, %d retries (%d timeouts), %d failed",
+                    completedTiles, tiles, retries, timeouts, failedRegions.size());
+        }
+    }
+}
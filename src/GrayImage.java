@@ -0,0 +1,138 @@
+package src;
+
+// Contiguous 8-bit grayscale image used by the kernel engines.
+// Pixels live row-major in a single byte[] with an explicit stride, so a
+// 10,000 x 10,000 image costs 100 MB instead of the ~400 MB (plus one array
+// header per row) of an int[][]. Values are stored as unsigned bytes (0-255).
+public final class GrayImage {
+    private final byte[] pixels;
+    private final int offset;
+    private final int width;
+    private final int height;
+    private final int stride;
+
+    // Allocate a zero-filled (black) image with a tightly packed stride
+    public GrayImage(int width, int height) {
+        this(new byte[checkedSize(width, height)], 0, width, height, width);
+    }
+
+    // Wrap an existing buffer; pixel (x, y) lives at pixels[offset + y * stride + x]
+    public GrayImage(byte[] pixels, int offset, int width, int height, int stride) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image dimensions must be positive: " + width + "x" + height);
+        }
+        if (stride < width) {
+            throw new IllegalArgumentException("Stride " + stride + " is smaller than width " + width);
+        }
+        if (offset < 0 || offset + (long) (height - 1) * stride + width > pixels.length) {
+            throw new IllegalArgumentException("Buffer too small for a " + width + "x" + height + " image");
+        }
+        this.pixels = pixels;
+        this.offset = offset;
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+    }
+
+    private static int checkedSize(int width, int height) {
+        long size = (long) width * height;
+        if (width <= 0 || height <= 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported image dimensions: " + width + "x" + height);
+        }
+        return (int) size;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int stride() {
+        return stride;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    // Backing array, exposed so the kernel engines can index it directly
+    public byte[] pixels() {
+        return pixels;
+    }
+
+    // Index of the first pixel of row y in pixels()
+    public int rowOffset(int y) {
+        return offset + y * stride;
+    }
+
+    public int get(int x, int y) {
+        return pixels[offset + y * stride + x] & 0xFF;
+    }
+
+    // Stores the low 8 bits of value; callers clamp to 0-255 beforehand
+    public void set(int x, int y, int value) {
+        pixels[offset + y * stride + x] = (byte) value;
+    }
+
+    public boolean sameSize(GrayImage other) {
+        return width == other.width && height == other.height;
+    }
+
+    // Pixel-wise comparison that ignores stride padding
+    public boolean contentEquals(GrayImage other) {
+        if (!sameSize(other)) {
+            return false;
+        }
+        for (int y = 0; y < height; y++) {
+            int a = rowOffset(y);
+            int b = other.rowOffset(y);
+            for (int x = 0; x < width; x++) {
+                if (pixels[a + x] != other.pixels[b + x]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Deep copy with a tightly packed stride
+    public GrayImage copy() {
+        GrayImage copy = new GrayImage(width, height);
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(pixels, rowOffset(y), copy.pixels, y * width, width);
+        }
+        return copy;
+    }
+
+    // Convert from the legacy int[][] representation, clamping to 0-255
+    public static GrayImage fromMatrix(int[][] matrix) {
+        GrayImage image = new GrayImage(matrix[0].length, matrix.length);
+        for (int y = 0; y < image.height; y++) {
+            int row = image.rowOffset(y);
+            for (int x = 0; x < image.width; x++) {
+                image.pixels[row + x] = (byte) Math.min(Math.max(matrix[y][x], 0), 255);
+            }
+        }
+        return image;
+    }
+
+    // Convert to the legacy int[][] representation
+    public int[][] toMatrix() {
+        int[][] matrix = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            int row = rowOffset(y);
+            for (int x = 0; x < width; x++) {
+                matrix[y][x] = pixels[row + x] & 0xFF;
+            }
+        }
+        return matrix;
+    }
+
+    @Override
+    public String toString() {
+        return "GrayImage[" + width + "x" + height + ", stride=" + stride + "]";
+    }
+}
@@ -0,0 +1,320 @@
+package src;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Fast export of GrayImage data without per-pixel setRGB calls.
+// - toBufferedImage copies whole rows straight into a TYPE_BYTE_GRAY DataBufferByte
+// - writePgm streams a binary PGM (P5) with no intermediate image at all
+// - writePng encodes the PNG itself: row chunks are deflated in parallel as
+//   independent, byte-aligned deflate segments and stitched into one zlib stream
+// - PngWriter does the same for an image delivered strip by strip
+public class ImageExporter {
+    // Uncompressed bytes handed to one deflate task
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final int ADLER_BASE = 65521;
+
+    private ImageExporter() {
+    }
+
+    // Pick the format from the file extension: .pgm, .raw, anything else is PNG
+    public static void save(GrayImage image, Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".pgm")) {
+            writePgm(image, file);
+        } else if (name.endsWith(".raw")) {
+            MappedConvolution.writeRaw(image, file);
+        } else {
+            writePng(image, file);
+        }
+    }
+
+    // Copy pixels into a TYPE_BYTE_GRAY image one row at a time
+    public static BufferedImage toBufferedImage(GrayImage image) {
+        BufferedImage buffered = new BufferedImage(image.width(), image.height(), BufferedImage.TYPE_BYTE_GRAY);
+        byte[] target = ((DataBufferByte) buffered.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < image.height(); y++) {
+            System.arraycopy(image.pixels(), image.rowOffset(y), target, y * image.width(), image.width());
+        }
+        return buffered;
+    }
+
+    // Binary PGM: a short text header followed by the raw rows
+    public static void writePgm(GrayImage image, Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            String header = "P5\n" + image.width() + " " + image.height() + "\n255\n";
+            out.write(header.getBytes(StandardCharsets.US_ASCII));
+            for (int y = 0; y < image.height(); y++) {
+                out.write(image.pixels(), image.rowOffset(y), image.width());
+            }
+        }
+    }
+
+    public static void writePng(GrayImage image, Path file) throws IOException {
+        writePng(image, file, ForkJoinPool.commonPool(), Deflater.BEST_SPEED);
+    }
+
+    // 8-bit grayscale PNG with the pixel data deflated in parallel on executor.
+    // Each chunk of rows is compressed on its own and ended with a sync flush, so
+    // the segments concatenate into a single valid deflate stream; at most
+    // twice the executor's parallelism chunks are held in memory at once.
+    public static void writePng(GrayImage image, Path file, ExecutorService executor, int level)
+            throws IOException {
+        int rowBytes = image.width() + 1; // Filter type byte + pixels
+        int rowsPerChunk = Math.max(1, CHUNK_BYTES / rowBytes);
+        int chunks = (image.height() + rowsPerChunk - 1) / rowsPerChunk;
+        int window = executor instanceof ForkJoinPool
+                ? 2 * ((ForkJoinPool) executor).getParallelism()
+                : 2 * Runtime.getRuntime().availableProcessors();
+
+        ArrayDeque<Future<CompressedChunk>> pending = new ArrayDeque<>();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            writeHeader(out, image.width(), image.height());
+
+            long adler = 1;
+            int next = 0;
+            while (next < chunks || !pending.isEmpty()) {
+                while (next < chunks && pending.size() < window) {
+                    int startRow = next * rowsPerChunk;
+                    int endRow = Math.min(startRow + rowsPerChunk, image.height());
+                    boolean last = ++next == chunks;
+                    pending.add(executor.submit(() -> compress(image, startRow, endRow, level, last)));
+                }
+                CompressedChunk chunk = pending.poll().get();
+                writeChunk(out, "IDAT", chunk.data);
+                adler = adler32Combine(adler, chunk.adler, chunk.inputLength);
+            }
+
+            writeTrailer(out, adler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding " + file, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to encode " + file, e.getCause());
+        } finally {
+            // Empty unless a chunk or a write failed; the rest of the chunks are not needed
+            for (Future<CompressedChunk> future : pending) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    // Signature, IHDR for an 8-bit grayscale image and the zlib stream header
+    private static void writeHeader(DataOutputStream out, int width, int height) throws IOException {
+        out.write(PNG_SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream ihdr = new DataOutputStream(header);
+        ihdr.writeInt(width);
+        ihdr.writeInt(height);
+        ihdr.writeByte(8); // Bit depth
+        ihdr.writeByte(0); // Grayscale
+        ihdr.writeByte(0); // Deflate
+        ihdr.writeByte(0); // Adaptive filtering
+        ihdr.writeByte(0); // No interlace
+        writeChunk(out, "IHDR", header.toByteArray());
+
+        writeChunk(out, "IDAT", new byte[] { 0x78, 0x01 }); // zlib header, 32K window
+    }
+
+    // zlib Adler-32 trailer of the pixel data, then IEND
+    private static void writeTrailer(DataOutputStream out, long adler) throws IOException {
+        byte[] trailer = { (byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8), (byte) adler };
+        writeChunk(out, "IDAT", trailer);
+        writeChunk(out, "IEND", new byte[0]);
+    }
+
+    // Raw-deflate rows [startRow, endRow), each prefixed with filter type 0 (None)
+    private static CompressedChunk compress(GrayImage image, int startRow, int endRow, int level, boolean last) {
+        int width = image.width();
+        byte[] row = new byte[width + 1];
+        Deflater deflater = new Deflater(level, true);
+        Adler32 adler = new Adler32();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream((endRow - startRow) * (width + 1) / 2 + 64);
+        byte[] buffer = new byte[64 * 1024];
+        try {
+            for (int y = startRow; y < endRow; y++) {
+                System.arraycopy(image.pixels(), image.rowOffset(y), row, 1, width);
+                adler.update(row, 0, row.length);
+                deflater.setInput(row);
+                while (!deflater.needsInput()) {
+                    int n = deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+                    compressed.write(buffer, 0, n);
+                }
+            }
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, n);
+                }
+            } else {
+                // A sync flush ends the segment on a byte boundary without a final block
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+        } finally {
+            deflater.end();
+        }
+        return new CompressedChunk(compressed.toByteArray(), adler.getValue(), (long) (endRow - startRow) * row.length);
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(typeBytes);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+
+    // Checksum of A followed by B from the checksums of A and B (as zlib's adler32_combine)
+    static long adler32Combine(long adlerA, long adlerB, long lengthB) {
+        long remainder = lengthB % ADLER_BASE;
+        long sum1 = adlerA & 0xFFFF;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adlerB & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adlerA >>> 16) & 0xFFFF) + ((adlerB >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= ((long) ADLER_BASE << 1)) {
+            sum2 -= ((long) ADLER_BASE << 1);
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    // Incremental PNG encoder for images that are produced a strip at a time and never
+    // held whole in memory. Rows are appended in order with writeRows; each call is
+    // deflated in chunk-sized pieces on executor and written before it returns, so the
+    // caller may reuse the strip's buffer straight away.
+    public static final class PngWriter implements Closeable {
+        private final Path file;
+        private final int width;
+        private final int height;
+        private final ExecutorService executor;
+        private final int level;
+        private final DataOutputStream out;
+        private long adler = 1;
+        private int rowsWritten;
+
+        public PngWriter(Path file, int width, int height, ExecutorService executor, int level)
+                throws IOException {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Image dimensions must be positive: " + width + "x" + height);
+            }
+            this.file = file;
+            this.width = width;
+            this.height = height;
+            this.executor = executor;
+            this.level = level;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            try {
+                writeHeader(out, width, height);
+            } catch (IOException e) {
+                out.close();
+                throw e;
+            }
+        }
+
+        public int rowsWritten() {
+            return rowsWritten;
+        }
+
+        // Append rows [startRow, endRow) of strip as the next rows of the image
+        public void writeRows(GrayImage strip, int startRow, int endRow) throws IOException {
+            if (strip.width() != width) {
+                throw new IllegalArgumentException("Strip width " + strip.width() + " does not match " + width);
+            }
+            if (startRow < 0 || endRow > strip.height() || startRow > endRow) {
+                throw new IllegalArgumentException("Invalid row range [" + startRow + ", " + endRow + ")");
+            }
+            if (rowsWritten + (endRow - startRow) > height) {
+                throw new IllegalStateException("More than " + height + " rows written to " + file);
+            }
+            int rowsPerChunk = Math.max(1, CHUNK_BYTES / (width + 1));
+            boolean finishesImage = rowsWritten + (endRow - startRow) == height;
+            List<Future<CompressedChunk>> chunks = new ArrayList<>();
+            try {
+                for (int y = startRow; y < endRow; y += rowsPerChunk) {
+                    int from = y;
+                    int to = Math.min(y + rowsPerChunk, endRow);
+                    boolean last = finishesImage && to == endRow;
+                    chunks.add(executor.submit(() -> compress(strip, from, to, level, last)));
+                }
+                for (Future<CompressedChunk> future : chunks) {
+                    CompressedChunk chunk = future.get();
+                    writeChunk(out, "IDAT", chunk.data);
+                    adler = adler32Combine(adler, chunk.adler, chunk.inputLength);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while encoding " + file, e);
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to encode " + file, e.getCause());
+            } finally {
+                for (Future<CompressedChunk> future : chunks) {
+                    future.cancel(false);
+                }
+            }
+            rowsWritten += endRow - startRow;
+        }
+
+        // Completes the file; fails, leaving it truncated, if rows are missing
+        @Override
+        public void close() throws IOException {
+            try {
+                if (rowsWritten != height) {
+                    throw new IOException("Only " + rowsWritten + " of " + height + " rows written to " + file);
+                }
+                writeTrailer(out, adler);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static final class CompressedChunk {
+        final byte[] data;
+        final long adler;
+        final long inputLength;
+
+        CompressedChunk(byte[] data, long adler, long inputLength) {
+            this.data = data;
+            this.adler = adler;
+            this.inputLength = inputLength;
+        }
+    }
+}
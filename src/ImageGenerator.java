@@ -0,0 +1,89 @@
+package src;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveAction;
+
+// Seedable, parallel random image generator.
+// Every row draws from its own SplittableRandom whose seed is derived from the run
+// seed and the row index, so the output depends only on the seed: any thread
+// count, and any order of filling rows or strips, produces the same pixels.
+public class ImageGenerator {
+    // Rows handed to one task before the range is split further
+    private static final int ROWS_PER_TASK = 64;
+
+    private ImageGenerator() {
+    }
+
+    // Generate a new image on numThreads workers of the shared engine pool
+    public static GrayImage generate(int rows, int cols, long seed, int numThreads) {
+        GrayImage image = new GrayImage(cols, rows);
+        fill(image, seed, numThreads);
+        return image;
+    }
+
+    // Overwrite every pixel of image with values 0-255 derived from seed
+    public static void fill(GrayImage image, long seed, int numThreads) {
+        fill(image, seed, 0, numThreads);
+    }
+
+    // Overwrite image with rows firstRow ... of the full seeded image, e.g. one strip
+    public static void fill(GrayImage image, long seed, int firstRow, int numThreads) {
+        if (numThreads == 1) {
+            fillRows(image, seed, firstRow, 0, image.height());
+        } else {
+            TiledConvolutionEngine.forParallelism(numThreads).pool()
+                    .invoke(new FillTask(image, seed, firstRow, 0, image.height()));
+        }
+    }
+
+    // Fill rows [startRow, endRow) of image as rows firstRow + startRow ... of the full
+    // seeded image; lets streaming callers generate one strip at a time
+    public static void fillRows(GrayImage image, long seed, int firstRow, int startRow, int endRow) {
+        int width = image.width();
+        byte[] pixels = image.pixels();
+        for (int i = startRow; i < endRow; i++) {
+            SplittableRandom random = new SplittableRandom(
+                    SplitMix.mix64(seed + (firstRow + i) * SplitMix.GOLDEN_GAMMA));
+            int row = image.rowOffset(i);
+            int j = 0;
+            // Eight pixels per 64-bit draw
+            for (; j + 8 <= width; j += 8) {
+                long bits = random.nextLong();
+                for (int b = 0; b < 8; b++) {
+                    pixels[row + j + b] = (byte) (bits >>> (b << 3));
+                }
+            }
+            if (j < width) {
+                long bits = random.nextLong();
+                for (; j < width; j++, bits >>>= 8) {
+                    pixels[row + j] = (byte) bits;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("serial") // Never serialized; Serializable only through RecursiveAction
+    private static final class FillTask extends RecursiveAction {
+        private final GrayImage image;
+        private final long seed;
+        private final int firstRow, from, to;
+
+        FillTask(GrayImage image, long seed, int firstRow, int from, int to) {
+            this.image = image;
+            this.seed = seed;
+            this.firstRow = firstRow;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                fillRows(image, seed, firstRow, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new FillTask(image, seed, firstRow, from, mid), new FillTask(image, seed, firstRow, mid, to));
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package src;
+
+import java.util.Arrays;
+
+// Convolution kernel of any odd width and height with an integer divisor, e.g. a
+// 15x15 blur: each output is the weighted sum of the neighbourhood divided by the
+// divisor (rounded half up) and clamped to 0-255. Analysed once when built:
+// - a rank-1 kernel (every row a multiple of one row) is separable and runs as a
+//   horizontal then a vertical 1-D pass, (width + height) multiplies per pixel
+// - a kernel with all weights equal is a box filter and runs in constant time per
+//   pixel from an integral image, whatever its size
+// Integer arithmetic throughout, so every strategy gives exactly the same pixels.
+public final class Kernel {
+    enum Strategy {
+        DIRECT, SEPARABLE, BOX
+    }
+
+    private final int[][] weights;
+    private final int divisor;
+    // Factors of a separable kernel: weights[i][j] == column[i] * row[j]
+    private final int[] row;
+    private final int[] column;
+    private final Strategy strategy;
+
+    private Kernel(int[][] weights, int divisor) {
+        if (weights.length == 0 || weights.length % 2 == 0 || weights[0].length == 0 || weights[0].length % 2 == 0) {
+            throw new IllegalArgumentException("Kernel width and height must be odd.");
+        }
+        if (divisor <= 0) {
+            throw new IllegalArgumentException("Kernel divisor must be positive.");
+        }
+        this.weights = new int[weights.length][];
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i].length != weights[0].length) {
+                throw new IllegalArgumentException("Kernel rows must all have the same length.");
+            }
+            this.weights[i] = weights[i].clone();
+        }
+        this.divisor = divisor;
+
+        int[][] factors = factorize(this.weights);
+        this.row = factors == null ? null : factors[0];
+        this.column = factors == null ? null : factors[1];
+        if (allEqual(this.weights)) {
+            strategy = Strategy.BOX;
+        } else if (row != null && width() + height() < width() * height()) {
+            strategy = Strategy.SEPARABLE;
+        } else {
+            strategy = Strategy.DIRECT;
+        }
+    }
+
+    public static Kernel of(int[][] weights) {
+        return new Kernel(weights, 1);
+    }
+
+    public static Kernel of(int[][] weights, int divisor) {
+        return new Kernel(weights, divisor);
+    }
+
+    // size x size mean filter
+    public static Kernel box(int size) {
+        int[][] weights = new int[size][size];
+        for (int[] row : weights) {
+            Arrays.fill(row, 1);
+        }
+        return new Kernel(weights, size * size);
+    }
+
+    // size x size binomial (discrete Gaussian) blur: the outer product of a row of
+    // Pascal's triangle with itself
+    public static Kernel binomial(int size) {
+        if (size <= 0 || size > 15) {
+            throw new IllegalArgumentException("Binomial kernels are limited to sizes 1-15.");
+        }
+        int[] pascal = new int[size];
+        pascal[0] = 1;
+        for (int n = 1; n < size; n++) {
+            for (int k = n; k > 0; k--) {
+                pascal[k] += pascal[k - 1];
+            }
+        }
+        int[][] weights = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                weights[i][j] = pascal[i] * pascal[j];
+            }
+        }
+        return new Kernel(weights, 1 << (2 * (size - 1)));
+    }
+
+    // Unsharp mask: amount * (identity - binomial blur) + identity, in integer weights
+    public static Kernel unsharpMask(int size, int amount) {
+        Kernel blur = binomial(size);
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Unsharp amount must be positive.");
+        }
+        int[][] weights = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                weights[i][j] = Math.multiplyExact(-amount, blur.weights[i][j]);
+            }
+        }
+        int center = Math.multiplyExact(amount + 1, blur.divisor);
+        weights[size / 2][size / 2] = Math.addExact(weights[size / 2][size / 2], center);
+        return new Kernel(weights, blur.divisor);
+    }
+
+    public int width() {
+        return weights[0].length;
+    }
+
+    public int height() {
+        return weights.length;
+    }
+
+    public int radiusX() {
+        return width() / 2;
+    }
+
+    public int radiusY() {
+        return height() / 2;
+    }
+
+    public int divisor() {
+        return divisor;
+    }
+
+    public int weight(int x, int y) {
+        return weights[y][x];
+    }
+
+    public boolean isSeparable() {
+        return row != null;
+    }
+
+    public boolean isBox() {
+        return strategy == Strategy.BOX;
+    }
+
+    Strategy strategy() {
+        return strategy;
+    }
+
+    int[][] weights() {
+        return weights;
+    }
+
+    int[] row() {
+        return row;
+    }
+
+    int[] column() {
+        return column;
+    }
+
+    // Weighted sum to output pixel: divide rounding half up, then clamp to 0-255.
+    // Sums are longs: a 15x15 binomial blur already exceeds an int at 255 * 4^14.
+    int finish(long sum) {
+        if (divisor != 1) {
+            sum = Math.floorDiv(sum + (divisor >> 1), divisor);
+        }
+        return (int) Math.min(Math.max(sum, 0), 255);
+    }
+
+    // Integer factors {row, column} of a rank-1 kernel, or null. The row is the first
+    // non-zero row divided by the gcd of its entries; any other row that is a rational
+    // multiple of it is then an integer multiple, because the reduced row is primitive.
+    private static int[][] factorize(int[][] weights) {
+        int pivot = -1;
+        for (int i = 0; i < weights.length && pivot < 0; i++) {
+            for (int weight : weights[i]) {
+                if (weight != 0) {
+                    pivot = i;
+                    break;
+                }
+            }
+        }
+        if (pivot < 0) {
+            return null; // All zero
+        }
+        int gcd = 0;
+        int nonZero = -1;
+        for (int j = 0; j < weights[pivot].length; j++) {
+            gcd = gcd(gcd, Math.abs(weights[pivot][j]));
+            if (nonZero < 0 && weights[pivot][j] != 0) {
+                nonZero = j;
+            }
+        }
+        int[] row = new int[weights[pivot].length];
+        for (int j = 0; j < row.length; j++) {
+            row[j] = weights[pivot][j] / gcd;
+        }
+        int[] column = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i][nonZero] % row[nonZero] != 0) {
+                return null;
+            }
+            column[i] = weights[i][nonZero] / row[nonZero];
+            for (int j = 0; j < row.length; j++) {
+                if (weights[i][j] != column[i] * row[j]) {
+                    return null;
+                }
+            }
+        }
+        return new int[][] { row, column };
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static boolean allEqual(int[][] weights) {
+        for (int[] row : weights) {
+            for (int weight : row) {
+                if (weight != weights[0][0]) {
+                    return false;
+                }
+            }
+        }
+        return weights[0][0] != 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Kernel[" + width() + "x" + height() + ", divisor=" + divisor + ", " + strategy + "]";
+    }
+}
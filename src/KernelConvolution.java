@@ -0,0 +1,209 @@
+package src;
+
+import java.util.Arrays;
+
+// Convolution of a rectangular region with an arbitrary Kernel and BorderMode.
+// The region is processed in blocks of at most BLOCK_SIZE x BLOCK_SIZE pixels. Each
+// block is first copied, together with a kernel-radius margin read through the border
+// mode, into a padded int window, so the inner loops never test for the image edge.
+// The output is then computed from the window by the kernel's strategy: direct sums,
+// two 1-D passes for separable kernels, or integral-image lookups for box filters.
+// Unlike Convolution, every pixel of the region is written, the border included.
+public final class KernelConvolution {
+    // Matches the engine's default tile, so a tile is a single block
+    static final int BLOCK_SIZE = TiledConvolutionEngine.DEFAULT_TILE_SIZE;
+
+    // Per-thread scratch space, grown on demand and reused across blocks
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private KernelConvolution() {
+    }
+
+    // Convolve the region [x0, x1) x [y0, y1) of source into result, clipped to the image
+    public static void convolve(GrayImage source, Kernel kernel, BorderMode border, GrayImage result,
+            int x0, int y0, int x1, int y1) {
+        convolve(source, kernel, kernel.strategy(), border, result, x0, y0, x1, y1);
+    }
+
+    // As above with the strategy forced, so the strategies can be compared
+    static void convolve(GrayImage source, Kernel kernel, Kernel.Strategy strategy, BorderMode border,
+            GrayImage result, int x0, int y0, int x1, int y1) {
+        if (!source.sameSize(result)) {
+            throw new IllegalArgumentException("Source and result images must have the same size.");
+        }
+        if (strategy == Kernel.Strategy.SEPARABLE && !kernel.isSeparable()) {
+            throw new IllegalArgumentException(kernel + " is not separable.");
+        }
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        x1 = Math.min(x1, source.width());
+        y1 = Math.min(y1, source.height());
+        Scratch scratch = SCRATCH.get();
+        for (int by = y0; by < y1; by += BLOCK_SIZE) {
+            for (int bx = x0; bx < x1; bx += BLOCK_SIZE) {
+                int bw = Math.min(BLOCK_SIZE, x1 - bx);
+                int bh = Math.min(BLOCK_SIZE, y1 - by);
+                int[] window = pad(source, kernel, border, bx, by, bw, bh, scratch);
+                switch (strategy) {
+                    case BOX:
+                        box(window, kernel, result, bx, by, bw, bh, scratch);
+                        break;
+                    case SEPARABLE:
+                        separable(window, kernel, result, bx, by, bw, bh, scratch);
+                        break;
+                    default:
+                        direct(window, kernel, result, bx, by, bw, bh);
+                }
+            }
+        }
+    }
+
+    // Copy the block plus its margin into scratch.window, row-major with width bw + 2 * rx
+    private static int[] pad(GrayImage source, Kernel kernel, BorderMode border, int bx, int by, int bw, int bh,
+            Scratch scratch) {
+        int rx = kernel.radiusX();
+        int ry = kernel.radiusY();
+        int pw = bw + 2 * rx;
+        int ph = bh + 2 * ry;
+        int[] window = scratch.window(pw * ph);
+        byte[] pixels = source.pixels();
+        // Column lookup shared by every row; -1 marks a ZERO-border pixel
+        int[] columns = scratch.columns(pw);
+        for (int x = 0; x < pw; x++) {
+            columns[x] = border.map(bx - rx + x, source.width());
+        }
+        for (int y = 0; y < ph; y++) {
+            int sy = border.map(by - ry + y, source.height());
+            int target = y * pw;
+            if (sy < 0) {
+                Arrays.fill(window, target, target + pw, 0);
+                continue;
+            }
+            int row = source.rowOffset(sy);
+            for (int x = 0; x < pw; x++) {
+                int sx = columns[x];
+                window[target + x] = sx < 0 ? 0 : pixels[row + sx] & 0xFF;
+            }
+        }
+        return window;
+    }
+
+    private static void direct(int[] window, Kernel kernel, GrayImage result, int bx, int by, int bw, int bh) {
+        int[][] weights = kernel.weights();
+        int kw = kernel.width();
+        int kh = kernel.height();
+        int pw = bw + kw - 1;
+        byte[] out = result.pixels();
+        for (int y = 0; y < bh; y++) {
+            int target = result.rowOffset(by + y) + bx;
+            for (int x = 0; x < bw; x++) {
+                long sum = 0;
+                for (int ky = 0; ky < kh; ky++) {
+                    int[] weightRow = weights[ky];
+                    int base = (y + ky) * pw + x;
+                    for (int kx = 0; kx < kw; kx++) {
+                        sum += (long) weightRow[kx] * window[base + kx];
+                    }
+                }
+                out[target + x] = (byte) kernel.finish(sum);
+            }
+        }
+    }
+
+    // Horizontal pass over every window row into scratch.rows, then a vertical pass
+    private static void separable(int[] window, Kernel kernel, GrayImage result, int bx, int by, int bw, int bh,
+            Scratch scratch) {
+        int[] row = kernel.row();
+        int[] column = kernel.column();
+        int kw = row.length;
+        int kh = column.length;
+        int pw = bw + kw - 1;
+        int ph = bh + kh - 1;
+        long[] horizontal = scratch.rows(bw * ph);
+        for (int y = 0; y < ph; y++) {
+            int base = y * pw;
+            int target = y * bw;
+            for (int x = 0; x < bw; x++) {
+                long sum = 0;
+                for (int kx = 0; kx < kw; kx++) {
+                    sum += (long) row[kx] * window[base + x + kx];
+                }
+                horizontal[target + x] = sum;
+            }
+        }
+        byte[] out = result.pixels();
+        for (int y = 0; y < bh; y++) {
+            int target = result.rowOffset(by + y) + bx;
+            for (int x = 0; x < bw; x++) {
+                long sum = 0;
+                for (int ky = 0; ky < kh; ky++) {
+                    sum += column[ky] * horizontal[(y + ky) * bw + x];
+                }
+                out[target + x] = (byte) kernel.finish(sum);
+            }
+        }
+    }
+
+    // Integral image of the window, then four lookups per pixel for the window sum
+    private static void box(int[] window, Kernel kernel, GrayImage result, int bx, int by, int bw, int bh,
+            Scratch scratch) {
+        int kw = kernel.width();
+        int kh = kernel.height();
+        int pw = bw + kw - 1;
+        int ph = bh + kh - 1;
+        int iw = pw + 1;
+        // integral[(y + 1) * iw + (x + 1)] is the sum of window[0..y][0..x]; row and column 0 are zero
+        long[] integral = scratch.rows(iw * (ph + 1));
+        Arrays.fill(integral, 0, iw, 0);
+        for (int y = 0; y < ph; y++) {
+            long rowSum = 0;
+            int base = y * pw;
+            int above = y * iw;
+            int target = above + iw;
+            integral[target] = 0;
+            for (int x = 0; x < pw; x++) {
+                rowSum += window[base + x];
+                integral[target + x + 1] = integral[above + x + 1] + rowSum;
+            }
+        }
+        long weight = kernel.weight(0, 0);
+        byte[] out = result.pixels();
+        for (int y = 0; y < bh; y++) {
+            int top = y * iw;
+            int bottom = (y + kh) * iw;
+            int target = result.rowOffset(by + y) + bx;
+            for (int x = 0; x < bw; x++) {
+                long sum = integral[bottom + x + kw] - integral[top + x + kw] - integral[bottom + x]
+                        + integral[top + x];
+                out[target + x] = (byte) kernel.finish(weight * sum);
+            }
+        }
+    }
+
+    private static final class Scratch {
+        private int[] window = new int[0];
+        private int[] columns = new int[0];
+        private long[] rows = new long[0];
+
+        int[] window(int size) {
+            if (window.length < size) {
+                window = new int[size];
+            }
+            return window;
+        }
+
+        int[] columns(int size) {
+            if (columns.length < size) {
+                columns = new int[size];
+            }
+            return columns;
+        }
+
+        long[] rows(int size) {
+            if (rows.length < size) {
+                rows = new long[size];
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package src;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Log-linear latency histogram in the style of HdrHistogram.
+// Values (nanoseconds) are bucketed by their power of two and, within it, by the next
+// SUB_BUCKET_BITS bits, so every bucket is at most ~3% wide relative to its values and
+// the whole long range fits in under 2,000 counters. Recording is one array increment
+// with no allocation. Each histogram has a single writer (one worker thread), which
+// updates with lazySet instead of a CAS; other threads take snapshots concurrently and
+// may see a record or two in flight, which is fine for monitoring.
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray totals = new AtomicLongArray(3); // count, sum, max
+
+    // Single-writer: only the owning thread may call this
+    public void record(long value) {
+        if (value < 0) {
+            value = 0; // nanoTime differences across cores can be slightly negative
+        }
+        int index = bucketIndex(value);
+        counts.lazySet(index, counts.get(index) + 1);
+        totals.lazySet(0, totals.get(0) + 1);
+        totals.lazySet(1, totals.get(1) + value);
+        if (value > totals.get(2)) {
+            totals.lazySet(2, value);
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, totals.get(0), totals.get(1), totals.get(2));
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> shift); // In [SUB_BUCKETS, 2 * SUB_BUCKETS)
+        return (shift + 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    // Largest value that falls into bucket index
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    // Immutable copy of a histogram, or of several merged together
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public static Snapshot empty() {
+            return new Snapshot(new long[BUCKETS], 0, 0, 0);
+        }
+
+        public Snapshot merge(Snapshot other) {
+            long[] merged = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                merged[i] = counts[i] + other.counts[i];
+            }
+            return new Snapshot(merged, count + other.count, sum + other.sum, Math.max(max, other.max));
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public double mean() {
+            return count == 0 ? 0.0 : (double) sum / count;
+        }
+
+        // Value at or below which the given percentile (0-100] of samples fall,
+        // accurate to the width of one bucket
+        public long percentile(double percentile) {
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        // "p50 1.2  p90 3.4  p99 5.6  max 7.8" in microseconds
+        public String formatMicros() {
+            return String.format("p50 %.1f  p90 %.1f  p99 %.1f  max %.1f", percentile(50) / 1e3,
+                    percentile(90) / 1e3, percentile(99) / 1e3, max / 1e3);
+        }
+    }
+}
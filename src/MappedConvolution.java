@@ -0,0 +1,160 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+// Out-of-core convolution over raw 8-bit grayscale files (width * height bytes,
+// row-major, no header). The source is memory-mapped strip by strip, each strip is
+// copied into a fixed heap buffer together with a one-row halo above and below,
+// filtered with the tiled engine, and the interior rows are written to the output
+// files with positional channel writes, flushed once at the end. Heap usage depends
+// only on the width and strip height, never on the image height, so images far
+// larger than -Xmx can be filtered.
+public class MappedConvolution {
+    // Target size of one source strip in bytes
+    public static final int DEFAULT_STRIP_BYTES = 8 * 1024 * 1024;
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: java src.MappedConvolution <input.raw> <width> <height> [threads]");
+            return;
+        }
+        Path input = Paths.get(args[0]);
+        int width = Integer.parseInt(args[1]);
+        int height = Integer.parseInt(args[2]);
+        int numThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        try {
+            convolve(input, width, height, Arrays.asList(Task1.SHARPEN_KERNEL, Task1.EDGE_DETECTION_KERNEL),
+                    Arrays.asList(Paths.get("sharpened_matrix.raw"), Paths.get("edge_detected_matrix.raw")),
+                    numThreads);
+        } catch (IOException e) {
+            System.out.println("Error during streaming convolution: " + e.getMessage());
+            return;
+        }
+        long end = System.nanoTime();
+        System.out.println("Streaming sharpen and edge detection applied. Time (ms): " + (end - start) / 1e6);
+    }
+
+    // Filter input with every kernel in one streaming pass, writing kernels[k] to outputs[k]
+    public static void convolve(Path input, int width, int height, List<int[][]> kernels, List<Path> outputs,
+            int numThreads) throws IOException {
+        int stripRows = Math.max(1, DEFAULT_STRIP_BYTES / width);
+        convolve(input, width, height, kernels, outputs, numThreads, stripRows);
+    }
+
+    public static void convolve(Path input, int width, int height, List<int[][]> kernels, List<Path> outputs,
+            int numThreads, int stripRows) throws IOException {
+        if (kernels.size() != outputs.size()) {
+            throw new IllegalArgumentException("Expected one output file per kernel.");
+        }
+        if (width <= 0 || height <= 0 || stripRows <= 0) {
+            throw new IllegalArgumentException("Dimensions and strip height must be positive.");
+        }
+        long imageBytes = (long) width * height;
+        TiledConvolutionEngine engine = TiledConvolutionEngine.forParallelism(numThreads);
+        int[][][] kernelArray = kernels.toArray(new int[0][][]);
+
+        // Strip buffers are allocated once: the strip plus one halo row on each side
+        int bufferRows = Math.min(stripRows + 2, height);
+        if ((long) bufferRows * width > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Strip of " + stripRows + " rows is too large for width " + width);
+        }
+        byte[] sourceBuffer = new byte[bufferRows * width];
+        byte[][] resultBuffers = new byte[kernels.size()][bufferRows * width];
+
+        FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+        FileChannel[] out = new FileChannel[outputs.size()];
+        try {
+            if (in.size() < imageBytes) {
+                throw new IOException("Input file " + input + " is smaller than " + width + "x" + height);
+            }
+            for (int k = 0; k < out.length; k++) {
+                // Pre-size the truncated output; the border rows are never written and read back as zeros
+                out[k] = FileChannel.open(outputs.get(k), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                out[k].write(ByteBuffer.wrap(new byte[1]), imageBytes - 1);
+            }
+
+            for (int y0 = 0; y0 < height; y0 += stripRows) {
+                int y1 = Math.min(y0 + stripRows, height);
+                int haloTop = Math.max(y0 - 1, 0);
+                int haloBottom = Math.min(y1 + 1, height);
+                int rows = haloBottom - haloTop;
+
+                MappedByteBuffer sourceStrip = in.map(FileChannel.MapMode.READ_ONLY, (long) haloTop * width,
+                        (long) rows * width);
+                sourceStrip.get(sourceBuffer, 0, rows * width);
+
+                // Local row 0 and rows - 1 are either halo rows or real image borders; in
+                // both cases the engine skips them, so only the strip's own rows are computed
+                GrayImage source = new GrayImage(sourceBuffer, 0, width, rows, width);
+                GrayImage[] results = new GrayImage[kernelArray.length];
+                for (int k = 0; k < results.length; k++) {
+                    results[k] = new GrayImage(resultBuffers[k], 0, width, rows, width);
+                }
+                engine.applyAll(source, kernelArray, results);
+
+                // Write rows [max(y0, 1), min(y1, height - 1)) back out
+                int first = Math.max(y0, 1);
+                int last = Math.min(y1, height - 1);
+                if (first >= last) {
+                    continue;
+                }
+                for (int k = 0; k < out.length; k++) {
+                    ByteBuffer rowsOut = ByteBuffer.wrap(resultBuffers[k], (first - haloTop) * width,
+                            (last - first) * width);
+                    long position = (long) first * width;
+                    while (rowsOut.hasRemaining()) {
+                        position += out[k].write(rowsOut, position);
+                    }
+                }
+            }
+            for (FileChannel channel : out) {
+                channel.force(false);
+            }
+        } finally {
+            in.close();
+            for (FileChannel channel : out) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    // Write an in-heap image as a raw file, e.g. to produce input for convolve
+    public static void writeRaw(GrayImage image, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int y = 0; y < image.height(); y++) {
+                ByteBuffer row = ByteBuffer.wrap(image.pixels(), image.rowOffset(y), image.width());
+                while (row.hasRemaining()) {
+                    channel.write(row);
+                }
+            }
+        }
+    }
+
+    // Read a raw file fully into the heap; only practical for images that fit in memory
+    public static GrayImage readRaw(Path file, int width, int height) throws IOException {
+        GrayImage image = new GrayImage(width, height);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(image.pixels());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Unexpected end of file in " + file);
+                }
+            }
+        }
+        return image;
+    }
+}
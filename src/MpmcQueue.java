@@ -0,0 +1,247 @@
+package src;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Bounded, array-backed, lock-free multi-producer/multi-consumer queue.
+// Each slot carries a sequence number that says whether it is ready to be written
+// (sequence == position) or read (sequence == position + 1); producers and consumers
+// claim positions with a single CAS on tail or head and never take a lock, and no
+// node is allocated per element. Blocking put/take retry a failed offer/poll once
+// after registering in a wait list and then park until signalled.
+final class MpmcQueue<E> {
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // Threads parked in take() waiting for an element, and in put() waiting for space
+    private final ConcurrentLinkedQueue<Thread> notEmptyWaiters = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Thread> notFullWaiters = new ConcurrentLinkedQueue<>();
+
+    // Capacity is rounded up to a power of two, and to at least 2: with a single slot
+    // "readable at position p" and "writable at position p + 1" share one sequence value
+    MpmcQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Math.max(2, Integer.highestOneBit(capacity));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        buffer = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    // Approximate number of queued elements
+    int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, buffer.length));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Add element if there is room; never blocks
+    boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long position = tail.get();
+        int index;
+        while (true) {
+            index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false; // Full: the slot still holds an element from the previous lap
+            } else {
+                position = tail.get(); // Another producer claimed this position
+            }
+        }
+        buffer[index] = element;
+        sequences.set(index, position + 1); // Publishes the element to consumers
+        signal(notEmptyWaiters);
+        return true;
+    }
+
+    // Remove the oldest element, or return null if the queue is empty; never blocks
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long position = head.get();
+        int index;
+        while (true) {
+            index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null; // Empty: the slot has not been published yet
+            } else {
+                position = head.get(); // Another consumer took this position
+            }
+        }
+        E element = (E) buffer[index];
+        buffer[index] = null;
+        sequences.set(index, position + mask + 1); // Free the slot for the next lap
+        signal(notFullWaiters);
+        return element;
+    }
+
+    // Add elements[from...] in order until the queue is full, claiming a whole run of
+    // free slots with a single CAS; returns how many were added. Never blocks.
+    int offerAll(List<? extends E> elements, int from) {
+        int added = 0;
+        int remaining = elements.size() - from;
+        while (remaining > 0) {
+            long position = tail.get();
+            int free = 0;
+            while (free < remaining && sequences.get((int) (position + free) & mask) == position + free) {
+                free++;
+            }
+            if (free == 0) {
+                if (sequences.get((int) position & mask) < position) {
+                    break; // Full
+                }
+                continue; // Another producer claimed this position
+            }
+            if (!tail.compareAndSet(position, position + free)) {
+                continue;
+            }
+            for (int i = 0; i < free; i++) {
+                E element = elements.get(from + added + i);
+                if (element == null) {
+                    throw new NullPointerException();
+                }
+                int index = (int) (position + i) & mask;
+                buffer[index] = element;
+                sequences.set(index, position + i + 1);
+            }
+            added += free;
+            remaining -= free;
+        }
+        signal(notEmptyWaiters, added);
+        return added;
+    }
+
+    // Move up to maxElements of the oldest elements into target, claiming them with a
+    // single CAS; returns how many were moved (0 if the queue is empty). Never blocks.
+    @SuppressWarnings("unchecked")
+    int drainTo(Collection<? super E> target, int maxElements) {
+        while (maxElements > 0) {
+            long position = head.get();
+            int ready = 0;
+            while (ready < maxElements
+                    && sequences.get((int) (position + ready) & mask) == position + ready + 1) {
+                ready++;
+            }
+            if (ready == 0) {
+                if (sequences.get((int) position & mask) < position + 1) {
+                    return 0; // Empty
+                }
+                continue; // Another consumer took this position
+            }
+            if (!head.compareAndSet(position, position + ready)) {
+                continue;
+            }
+            for (int i = 0; i < ready; i++) {
+                int index = (int) (position + i) & mask;
+                target.add((E) buffer[index]);
+                buffer[index] = null;
+                sequences.set(index, position + i + mask + 1);
+            }
+            signal(notFullWaiters, ready);
+            return ready;
+        }
+        return 0;
+    }
+
+    // Add element, parking while the queue is full
+    void put(E element) throws InterruptedException {
+        while (!offer(element)) {
+            Thread current = Thread.currentThread();
+            notFullWaiters.add(current);
+            // Re-check after registering so a concurrent poll cannot be missed
+            if (offer(element)) {
+                leave(notFullWaiters, current);
+                return;
+            }
+            LockSupport.park(this);
+            boolean signalled = !notFullWaiters.remove(current);
+            if (Thread.interrupted()) {
+                if (signalled) {
+                    signal(notFullWaiters);
+                }
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    // Remove the oldest element, parking while the queue is empty
+    E take() throws InterruptedException {
+        E element;
+        while ((element = poll()) == null) {
+            Thread current = Thread.currentThread();
+            notEmptyWaiters.add(current);
+            // Re-check after registering so a concurrent offer cannot be missed
+            element = poll();
+            if (element != null) {
+                leave(notEmptyWaiters, current);
+                return element;
+            }
+            LockSupport.park(this);
+            boolean signalled = !notEmptyWaiters.remove(current);
+            if (Thread.interrupted()) {
+                if (signalled) {
+                    signal(notEmptyWaiters);
+                }
+                throw new InterruptedException();
+            }
+        }
+        return element;
+    }
+
+    // Deregister a thread that no longer needs to wait. If a signaller already
+    // removed it, that wake-up was meant for someone, so pass it on.
+    private static void leave(ConcurrentLinkedQueue<Thread> waiters, Thread current) {
+        if (!waiters.remove(current)) {
+            signal(waiters);
+        }
+    }
+
+    private static void signal(ConcurrentLinkedQueue<Thread> waiters, int count) {
+        for (int i = 0; i < count && !waiters.isEmpty(); i++) {
+            signal(waiters);
+        }
+    }
+
+    private static void signal(ConcurrentLinkedQueue<Thread> waiters) {
+        if (!waiters.isEmpty()) {
+            Thread waiter = waiters.poll();
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package src;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+// Discrete-event simulation of the Task 4 system: a virtual clock and a priority queue
+// of timestamped events replace real threads and sleeps, so an hour of simulated
+// traffic runs in well under a second on one thread and the result depends only on
+// the configuration and seed, not on the machine.
+// Model: tasks are submitted all at once (arrival rate 0) or as a Poisson stream,
+// reach the queue after an exponentially distributed network latency, and are served
+// FIFO by numWorkers workers with exponentially distributed service times. Failures
+// and latency spikes come from the FailureInjector and failed tasks back off per their
+// RetryPolicy, then travel over the network again. Jitter, latency and service times
+// are drawn from one SplittableRandom seeded from the failure seed.
+public final class NetworkSimulation {
+    private static final int SUBMIT = 0;
+    private static final int ARRIVE = 1;
+    private static final int FINISH = 2;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final int numWorkers;
+    private final double meanLatencyMillis;
+    private final double meanServiceMillis;
+    private final double arrivalRatePerSecond;
+    private final FailureInjector failureInjector;
+    private final RetryPolicy retryPolicy;
+
+    public NetworkSimulation(int numWorkers, double meanLatencyMillis, double meanServiceMillis,
+            double arrivalRatePerSecond, FailureInjector failureInjector, RetryPolicy retryPolicy) {
+        if (numWorkers <= 0 || meanLatencyMillis < 0 || meanServiceMillis < 0 || arrivalRatePerSecond < 0) {
+            throw new IllegalArgumentException("Workers must be positive and times and rates non-negative.");
+        }
+        this.numWorkers = numWorkers;
+        this.meanLatencyMillis = meanLatencyMillis;
+        this.meanServiceMillis = meanServiceMillis;
+        this.arrivalRatePerSecond = arrivalRatePerSecond;
+        this.failureInjector = failureInjector;
+        this.retryPolicy = retryPolicy;
+    }
+
+    public Result run(int totalTasks) {
+        SplittableRandom random = new SplittableRandom(failureInjector.seed());
+        PriorityQueue<Event> events = new PriorityQueue<>();
+        ArrayDeque<SimTask> queue = new ArrayDeque<>();
+        LatencyHistogram queueWait = new LatencyHistogram();
+        LatencyHistogram endToEnd = new LatencyHistogram();
+        long sequence = 0;
+        long processed = 0;
+        long busyNanos = 0;
+        long now = 0;
+        int idleWorkers = numWorkers;
+        int submitted = 0;
+        int succeeded = 0;
+        int failed = 0;
+        long retries = 0;
+
+        // Submissions are generated one at a time, so the event queue stays small
+        if (totalTasks > 0) {
+            events.add(new Event(0, sequence++, SUBMIT, null));
+        }
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            now = event.time;
+            processed++;
+            switch (event.type) {
+                case SUBMIT: {
+                    submitted++;
+                    SimTask task = new SimTask(submitted, submitted % failureInjector.taskClasses(), now);
+                    events.add(new Event(now + exponential(random, meanLatencyMillis), sequence++, ARRIVE, task));
+                    if (submitted < totalTasks) {
+                        long gap = arrivalRatePerSecond == 0 ? 0 : exponential(random, 1000.0 / arrivalRatePerSecond);
+                        events.add(new Event(now + gap, sequence++, SUBMIT, null));
+                    }
+                    break;
+                }
+                case ARRIVE:
+                    event.task.enqueuedAt = now;
+                    queue.add(event.task);
+                    break;
+                default: { // FINISH
+                    SimTask task = event.task;
+                    idleWorkers++;
+                    int attempt = task.failures + 1;
+                    if (failureInjector.shouldFail(task.id, task.taskClass, attempt)) {
+                        task.failures++;
+                        if (task.failures > retryPolicy.maxRetries()) {
+                            failed++;
+                            endToEnd.record(now - task.submittedAt);
+                        } else {
+                            retries++;
+                            long backoff = retryPolicy.delayMillis(task.failures, random::nextDouble) * NANOS_PER_MILLI;
+                            long arrival = now + backoff + exponential(random, meanLatencyMillis);
+                            events.add(new Event(arrival, sequence++, ARRIVE, task));
+                        }
+                    } else {
+                        succeeded++;
+                        endToEnd.record(now - task.submittedAt);
+                    }
+                    break;
+                }
+            }
+            // Hand queued tasks to idle workers
+            while (idleWorkers > 0 && !queue.isEmpty()) {
+                SimTask task = queue.poll();
+                idleWorkers--;
+                queueWait.record(now - task.enqueuedAt);
+                long service = exponential(random, meanServiceMillis)
+                        + failureInjector.latencyMillis(task.id, task.failures + 1) * NANOS_PER_MILLI;
+                busyNanos += service;
+                events.add(new Event(now + service, sequence++, FINISH, task));
+            }
+        }
+        return new Result(totalTasks, succeeded, failed, retries, processed, now, busyNanos, numWorkers,
+                queueWait.snapshot(), endToEnd.snapshot());
+    }
+
+    // Exponentially distributed duration with the given mean, in nanoseconds
+    private static long exponential(SplittableRandom random, double meanMillis) {
+        if (meanMillis == 0) {
+            return 0;
+        }
+        return (long) (-meanMillis * Math.log(1.0 - random.nextDouble()) * NANOS_PER_MILLI);
+    }
+
+    private static final class SimTask {
+        final int id;
+        final int taskClass;
+        final long submittedAt;
+        long enqueuedAt;
+        int failures;
+
+        SimTask(int id, int taskClass, long submittedAt) {
+            this.id = id;
+            this.taskClass = taskClass;
+            this.submittedAt = submittedAt;
+        }
+    }
+
+    // Ordered by time, then by scheduling order so equal-time events replay identically
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        final long sequence;
+        final int type;
+        final SimTask task;
+
+        Event(long time, long sequence, int type, SimTask task) {
+            this.time = time;
+            this.sequence = sequence;
+            this.type = type;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public static final class Result {
+        private final int totalTasks;
+        private final int succeeded;
+        private final int failed;
+        private final long retries;
+        private final long events;
+        private final long simulatedNanos;
+        private final long busyNanos;
+        private final int numWorkers;
+        private final LatencyHistogram.Snapshot queueWait;
+        private final LatencyHistogram.Snapshot endToEnd;
+
+        Result(int totalTasks, int succeeded, int failed, long retries, long events, long simulatedNanos,
+                long busyNanos, int numWorkers, LatencyHistogram.Snapshot queueWait,
+                LatencyHistogram.Snapshot endToEnd) {
+            this.totalTasks = totalTasks;
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.retries = retries;
+            this.events = events;
+            this.simulatedNanos = simulatedNanos;
+            this.busyNanos = busyNanos;
+            this.numWorkers = numWorkers;
+            this.queueWait = queueWait;
+            this.endToEnd = endToEnd;
+        }
+
+        public int totalTasks() {
+            return totalTasks;
+        }
+
+        public int succeeded() {
+            return succeeded;
+        }
+
+        public int failed() {
+            return failed;
+        }
+
+        public long retries() {
+            return retries;
+        }
+
+        public long events() {
+            return events;
+        }
+
+        public long simulatedNanos() {
+            return simulatedNanos;
+        }
+
+        public LatencyHistogram.Snapshot queueWait() {
+            return queueWait;
+        }
+
+        // Submission to final success or failure, including latency and backoff
+        public LatencyHistogram.Snapshot endToEnd() {
+            return endToEnd;
+        }
+
+        // Mean fraction of simulated time the workers spent serving tasks
+        public double utilization() {
+            return simulatedNanos == 0 ? 0.0 : (double) busyNanos / ((double) simulatedNanos * numWorkers);
+        }
+
+        public String summary() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("[Simulation] %.1f s simulated, %d events, retries %d, %.1f tasks/s%n",
+                    simulatedNanos / 1e9, events, retries,
+                    simulatedNanos == 0 ? 0.0 : (succeeded + failed) / (simulatedNanos / 1e9)));
+            text.append(String.format("  Queue wait (ms):  p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                    queueWait.percentile(50) / 1e6, queueWait.percentile(90) / 1e6, queueWait.percentile(99) / 1e6,
+                    queueWait.max() / 1e6));
+            text.append(String.format("  End to end (ms):  p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                    endToEnd.percentile(50) / 1e6, endToEnd.percentile(90) / 1e6, endToEnd.percentile(99) / 1e6,
+                    endToEnd.max() / 1e6));
+            text.append(String.format("  Worker utilization: %.0f%%", utilization() * 100));
+            return text.toString();
+        }
+    }
+}
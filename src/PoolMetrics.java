@@ -0,0 +1,268 @@
+package src;
+
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+// Instrumentation for a pool of workers: queue-wait and service-time histograms,
+// completed/failed/retried counts and busy time per worker, and queue depth sampled
+// over time. Every worker writes only to its own Worker record, so recording never
+// contends; snapshot() merges the records on demand and startReporter prints a
+// summary periodically.
+public final class PoolMetrics {
+    public static final long DEPTH_SAMPLE_MILLIS = 10;
+    // Queue depth samples kept for the history, i.e. the last 10 seconds
+    private static final int DEPTH_HISTORY = 1000;
+
+    private final Worker[] workers;
+    private final long startTime = System.nanoTime();
+    // Overload outcomes of a bounded queue; recorded by producers, so shared atomics
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+
+    // Queue depth, written by the sampler thread only
+    private final int[] depthHistory = new int[DEPTH_HISTORY];
+    private long depthSamples;
+    private long depthSum;
+    private int depthMax;
+    private IntSupplier queueDepth;
+    private ScheduledExecutorService reporter;
+
+    public PoolMetrics(int numWorkers) {
+        workers = new Worker[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            workers[i] = new Worker();
+        }
+    }
+
+    // Record for worker index; only that worker's thread may write to it
+    public Worker worker(int index) {
+        return workers[index];
+    }
+
+    // A full queue refused a task
+    public void taskRejected() {
+        rejected.incrementAndGet();
+    }
+
+    // A full queue discarded a queued task to make room
+    public void taskDropped() {
+        dropped.incrementAndGet();
+    }
+
+    // A full queue made the submitter run a task itself
+    public void taskRanInCaller() {
+        callerRuns.incrementAndGet();
+    }
+
+    // Sample queueDepth every DEPTH_SAMPLE_MILLIS and print a summary every periodMillis
+    // (0 samples only). Runs on a daemon thread until stop() is called.
+    public synchronized void startReporter(IntSupplier queueDepth, long periodMillis, PrintStream out) {
+        if (reporter != null) {
+            throw new IllegalStateException("Reporter already started");
+        }
+        this.queueDepth = queueDepth;
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pool-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::sampleQueueDepth, 0, DEPTH_SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+        if (periodMillis > 0) {
+            reporter.scheduleAtFixedRate(() -> out.println(snapshot().summary()), periodMillis, periodMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    private synchronized void sampleQueueDepth() {
+        int depth = queueDepth.getAsInt();
+        depthHistory[(int) (depthSamples % DEPTH_HISTORY)] = depth;
+        depthSamples++;
+        depthSum += depth;
+        depthMax = Math.max(depthMax, depth);
+    }
+
+    public synchronized Snapshot snapshot() {
+        LatencyHistogram.Snapshot queueWait = LatencyHistogram.Snapshot.empty();
+        LatencyHistogram.Snapshot serviceTime = LatencyHistogram.Snapshot.empty();
+        long completed = 0;
+        long failed = 0;
+        long retries = 0;
+        long elapsed = System.nanoTime() - startTime;
+        double[] utilization = new double[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            Worker worker = workers[i];
+            queueWait = queueWait.merge(worker.queueWait.snapshot());
+            serviceTime = serviceTime.merge(worker.serviceTime.snapshot());
+            completed += worker.completed;
+            failed += worker.failed;
+            retries += worker.retries;
+            utilization[i] = elapsed == 0 ? 0.0 : Math.min(1.0, (double) worker.busyNanos / elapsed);
+        }
+        int historyLength = (int) Math.min(depthSamples, DEPTH_HISTORY);
+        int[] history = new int[historyLength];
+        for (int i = 0; i < historyLength; i++) {
+            history[i] = depthHistory[(int) ((depthSamples - historyLength + i) % DEPTH_HISTORY)];
+        }
+        double depthMean = depthSamples == 0 ? 0.0 : (double) depthSum / depthSamples;
+        return new Snapshot(elapsed, completed, failed, retries, rejected.get(), dropped.get(), callerRuns.get(),
+                queueWait, serviceTime, utilization, history, depthMean, depthMax);
+    }
+
+    // Per-worker counters; single writer, so plain increments of volatile fields suffice
+    public static final class Worker {
+        private final LatencyHistogram queueWait = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private volatile long completed;
+        private volatile long failed;
+        private volatile long retries;
+        private volatile long busyNanos;
+
+        // A task waited queueWaitNanos in the queue, then ran for serviceNanos
+        public void taskRan(long queueWaitNanos, long serviceNanos) {
+            queueWait.record(queueWaitNanos);
+            serviceTime.record(serviceNanos);
+            busyNanos += serviceNanos;
+        }
+
+        public void taskCompleted() {
+            completed++;
+        }
+
+        // The task failed for good
+        public void taskFailed() {
+            failed++;
+        }
+
+        public void retryScheduled() {
+            retries++;
+        }
+    }
+
+    public static final class Snapshot {
+        private final long elapsedNanos;
+        private final long completed;
+        private final long failed;
+        private final long retries;
+        private final long rejected;
+        private final long dropped;
+        private final long callerRuns;
+        private final LatencyHistogram.Snapshot queueWait;
+        private final LatencyHistogram.Snapshot serviceTime;
+        private final double[] utilization;
+        private final int[] queueDepthHistory;
+        private final double queueDepthMean;
+        private final int queueDepthMax;
+
+        Snapshot(long elapsedNanos, long completed, long failed, long retries, long rejected, long dropped,
+                long callerRuns, LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot serviceTime,
+                double[] utilization, int[] queueDepthHistory, double queueDepthMean, int queueDepthMax) {
+            this.elapsedNanos = elapsedNanos;
+            this.completed = completed;
+            this.failed = failed;
+            this.retries = retries;
+            this.rejected = rejected;
+            this.dropped = dropped;
+            this.callerRuns = callerRuns;
+            this.queueWait = queueWait;
+            this.serviceTime = serviceTime;
+            this.utilization = utilization;
+            this.queueDepthHistory = queueDepthHistory;
+            this.queueDepthMean = queueDepthMean;
+            this.queueDepthMax = queueDepthMax;
+        }
+
+        public long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long completed() {
+            return completed;
+        }
+
+        public long failed() {
+            return failed;
+        }
+
+        public long retries() {
+            return retries;
+        }
+
+        public long rejected() {
+            return rejected;
+        }
+
+        public long dropped() {
+            return dropped;
+        }
+
+        public long callerRuns() {
+            return callerRuns;
+        }
+
+        public LatencyHistogram.Snapshot queueWait() {
+            return queueWait;
+        }
+
+        public LatencyHistogram.Snapshot serviceTime() {
+            return serviceTime;
+        }
+
+        // Fraction of the elapsed time each worker spent running tasks
+        public double[] utilization() {
+            return utilization.clone();
+        }
+
+        // Recent queue depth samples, oldest first, DEPTH_SAMPLE_MILLIS apart
+        public int[] queueDepthHistory() {
+            return queueDepthHistory.clone();
+        }
+
+        public int queueDepth() {
+            return queueDepthHistory.length == 0 ? 0 : queueDepthHistory[queueDepthHistory.length - 1];
+        }
+
+        public double queueDepthMean() {
+            return queueDepthMean;
+        }
+
+        public int queueDepthMax() {
+            return queueDepthMax;
+        }
+
+        // Finished tasks (completed or failed for good) per second
+        public double throughput() {
+            return elapsedNanos == 0 ? 0.0 : (completed + failed) / (elapsedNanos / 1e9);
+        }
+
+        public String summary() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("[Metrics %.1f s] completed %d, failed %d, retries %d, %.1f tasks/s%n",
+                    elapsedNanos / 1e9, completed, failed, retries, throughput()));
+            if (rejected + dropped + callerRuns > 0) {
+                text.append(String.format("  Queue full: rejected %d, dropped %d, ran in caller %d%n", rejected,
+                        dropped, callerRuns));
+            }
+            text.append("  Queue wait (us):   ").append(queueWait.formatMicros()).append(System.lineSeparator());
+            text.append("  Service time (us): ").append(serviceTime.formatMicros()).append(System.lineSeparator());
+            text.append(String.format("  Queue depth: now %d, mean %.1f, max %d%n", queueDepth(), queueDepthMean,
+                    queueDepthMax));
+            text.append("  Worker utilization:");
+            for (int i = 0; i < utilization.length; i++) {
+                text.append(String.format(" #%d %.0f%%", i, utilization[i] * 100));
+            }
+            return text.toString();
+        }
+    }
+}
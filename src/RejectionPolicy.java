@@ -0,0 +1,20 @@
+package src;
+
+import java.util.Locale;
+
+// What a bounded task queue does with a new task when it is full
+public enum RejectionPolicy {
+    // Wait for space; producers slow down to the rate the workers drain at
+    BLOCK,
+    // Run the task on the submitting thread, which also throttles the producer
+    CALLER_RUNS,
+    // Discard the oldest queued task to make room for the new one
+    DROP_OLDEST,
+    // Refuse the task with a RejectedExecutionException
+    REJECT;
+
+    // Accepts the constant names in any case, with '-' or '_' (e.g. "caller-runs")
+    public static RejectionPolicy parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
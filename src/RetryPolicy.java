@@ -0,0 +1,54 @@
+package src;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+// Decides how often, and after what delay, a failed task is tried again.
+// Attached to each task, so different kinds of work can back off differently.
+public interface RetryPolicy {
+    // Retries allowed after the first attempt
+    int maxRetries();
+
+    // Delay in milliseconds before retry number retry (1 for the first retry)
+    default long delayMillis(int retry) {
+        return delayMillis(retry, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    // As delayMillis(retry), drawing any jitter from uniform (values in [0, 1)) so
+    // that seeded callers such as the simulation get reproducible delays
+    long delayMillis(int retry, DoubleSupplier uniform);
+
+    // Retry straight away, as Task 4 originally did
+    static RetryPolicy immediate(int maxRetries) {
+        return exponentialBackoff(maxRetries, 0, 1.0, 0, 0.0);
+    }
+
+    // initialDelay * multiplier^(retry - 1), capped at maxDelay. With jitter j in [0, 1]
+    // the delay is drawn uniformly from [(1 - j) * delay, delay], so tasks that failed
+    // together do not all come back in the same instant.
+    static RetryPolicy exponentialBackoff(int maxRetries, long initialDelayMillis, double multiplier,
+            long maxDelayMillis, double jitter) {
+        if (maxRetries < 0 || initialDelayMillis < 0 || multiplier < 1.0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("Invalid backoff configuration.");
+        }
+        if (jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1.");
+        }
+        return new RetryPolicy() {
+            @Override
+            public int maxRetries() {
+                return maxRetries;
+            }
+
+            @Override
+            public long delayMillis(int retry, DoubleSupplier uniform) {
+                double delay = initialDelayMillis * Math.pow(multiplier, Math.max(0, retry - 1));
+                delay = Math.min(delay, maxDelayMillis);
+                if (jitter > 0.0) {
+                    delay *= 1.0 - jitter * uniform.getAsDouble();
+                }
+                return Math.round(delay);
+            }
+        };
+    }
+}
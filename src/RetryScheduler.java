@@ -0,0 +1,141 @@
+package src;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Hashed timer wheel for delayed actions such as task retries.
+// Time is divided into ticks and the wheel has one bucket per tick, wrapping around;
+// an action due in n ticks goes into bucket (now + n) mod wheelSize together with the
+// number of full rotations still to wait. Scheduling is a lock-free queue insert and
+// each tick only visits one bucket, so the cost does not grow with the number of
+// pending actions the way a priority queue does. Actions run on the scheduler thread
+// and should only hand work off (e.g. re-enqueue a task), never do it.
+public class RetryScheduler {
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tickNanos;
+    private final int mask;
+    private final Timeout[] wheel; // Bucket heads, only touched by the scheduler thread
+    private final ConcurrentLinkedQueue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startTime;
+    private final Thread ticker;
+    private volatile boolean running = true;
+    private long tick;
+
+    public RetryScheduler() {
+        this(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    // wheelSize is rounded up to a power of two
+    public RetryScheduler(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0 || wheelSize > (1 << 20)) {
+            throw new IllegalArgumentException("Tick must be positive and wheel size between 1 and 2^20.");
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        wheel = new Timeout[size];
+        mask = size - 1;
+        startTime = System.nanoTime();
+        ticker = new Thread(this::run, "retry-scheduler");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    // Run action on the scheduler thread once delayMillis have passed (rounded up to a tick)
+    public void schedule(Runnable action, long delayMillis) {
+        if (!running) {
+            throw new RejectedExecutionException("Retry scheduler has been shut down");
+        }
+        pending.incrementAndGet();
+        incoming.add(new Timeout(action, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis))));
+    }
+
+    // Actions scheduled but not yet run
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    // Stop the scheduler; actions that have not fired yet are discarded
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long nextTick = startTime + tickNanos;
+        while (running) {
+            long sleep = nextTick - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue; // Woken early, or spuriously
+            }
+            transferIncoming();
+            expireBucket((int) (tick & mask));
+            tick++;
+            nextTick += tickNanos;
+        }
+    }
+
+    // Move newly scheduled actions into their buckets
+    private void transferIncoming() {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            long dueTick = (timeout.deadline - startTime) / tickNanos;
+            long target = Math.max(dueTick, tick); // Already overdue: fire on this tick
+            timeout.rounds = (target - tick) / wheel.length;
+            int bucket = (int) (target & mask);
+            timeout.next = wheel[bucket];
+            wheel[bucket] = timeout;
+        }
+    }
+
+    private void expireBucket(int bucket) {
+        Timeout previous = null;
+        Timeout timeout = wheel[bucket];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds > 0) {
+                timeout.rounds--; // Due on a later rotation
+                previous = timeout;
+            } else {
+                if (previous == null) {
+                    wheel[bucket] = next;
+                } else {
+                    previous.next = next;
+                }
+                try {
+                    timeout.action.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Scheduled action failed: " + e);
+                }
+                pending.decrementAndGet();
+            }
+            timeout = next;
+        }
+    }
+
+    private static final class Timeout {
+        final Runnable action;
+        final long deadline;
+        long rounds;
+        Timeout next;
+
+        Timeout(Runnable action, long deadline) {
+            this.action = action;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package src;
+
+// SplitMix64 pieces shared by the seeded generators. GOLDEN_GAMMA spaces keyed seeds
+// apart and mix64 (Stafford's variant 13 finalizer, as used by SplittableRandom)
+// decorrelates them, so a (seed, key) pair hashes to an independent 64-bit value.
+final class SplitMix {
+    static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private SplitMix() {
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Uniform double in [0, 1) from the top 53 bits, as SplittableRandom.nextDouble
+    static double toDouble(long bits) {
+        return (bits >>> 11) * 0x1.0p-53;
+    }
+}
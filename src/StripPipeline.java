@@ -0,0 +1,292 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+// Overlapped generate -> convolve -> encode processing of a seeded image.
+// Row strips flow from the generator stage through the fused kernel stage to the PNG
+// encoder stage over bounded hand-off queues, so all three stages run at once and the
+// wall time approaches that of the slowest stage instead of their sum. Each stage
+// still spreads its own work over the engine's pool. Strip buffers come from fixed
+// free lists: at most depth source strips and depth sets of result strips exist at
+// any time, so memory depends on the width and strip height, not on the image height.
+public final class StripPipeline {
+    // Target size of one source strip in bytes
+    public static final int DEFAULT_STRIP_BYTES = 4 * 1024 * 1024;
+    // Strips in flight per buffer kind: one per stage is enough for full overlap
+    public static final int DEFAULT_DEPTH = 3;
+
+    private final TiledConvolutionEngine engine;
+    private final int numThreads;
+    private final int stripRows;
+    private final int depth;
+
+    // Strip height chosen from DEFAULT_STRIP_BYTES and the image width
+    public StripPipeline(int numThreads) {
+        this(numThreads, 0, DEFAULT_DEPTH);
+    }
+
+    // stripRows 0 picks the strip height from DEFAULT_STRIP_BYTES
+    public StripPipeline(int numThreads, int stripRows, int depth) {
+        if (numThreads <= 0 || stripRows < 0 || depth <= 0) {
+            throw new IllegalArgumentException("Threads and depth must be positive and strip rows non-negative.");
+        }
+        this.engine = TiledConvolutionEngine.forParallelism(numThreads);
+        this.numThreads = numThreads;
+        this.stripRows = stripRows;
+        this.depth = depth;
+    }
+
+    // Generate the rows x cols image for seed, filter it with every kernel and write
+    // kernels[k]'s result to outputs[k] as PNG. The pixels match generateMatrix followed
+    // by dynamicThreadKernelApplication and saveMatrixAsImage.
+    public Stats run(int rows, int cols, long seed, List<int[][]> kernels, List<Path> outputs) throws IOException {
+        if (kernels.isEmpty() || kernels.size() != outputs.size()) {
+            throw new IllegalArgumentException("Expected one output file per kernel.");
+        }
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Image dimensions must be positive: " + cols + "x" + rows);
+        }
+        int[][][] kernelArray = kernels.toArray(new int[0][][]);
+        for (int[][] kernel : kernelArray) {
+            Convolution.checkKernel(kernel);
+        }
+        int height = Math.min(stripRows > 0 ? stripRows : Math.max(1, DEFAULT_STRIP_BYTES / cols), rows);
+        int bufferRows = Math.min(height + 2, rows); // The strip plus one halo row on each side
+        if ((long) bufferRows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Strip of " + height + " rows is too large for width " + cols);
+        }
+        int strips = (rows + height - 1) / height;
+
+        BlockingQueue<byte[]> freeSources = new ArrayBlockingQueue<>(depth);
+        BlockingQueue<byte[][]> freeResults = new ArrayBlockingQueue<>(depth);
+        for (int i = 0; i < depth; i++) {
+            freeSources.add(new byte[bufferRows * cols]);
+            freeResults.add(new byte[kernelArray.length][bufferRows * cols]);
+        }
+        BlockingQueue<Strip> generated = new ArrayBlockingQueue<>(depth);
+        BlockingQueue<Strip> filtered = new ArrayBlockingQueue<>(depth);
+        // Busy time of each stage, excluding time spent waiting on the queues
+        long[] stageNanos = new long[3];
+
+        Callable<Void> generator = () -> {
+            for (int s = 0; s < strips; s++) {
+                int y0 = s * height;
+                int y1 = Math.min(y0 + height, rows);
+                byte[] buffer = freeSources.take();
+                long start = System.nanoTime();
+                Strip strip = new Strip(y0, y1, Math.max(y0 - 1, 0), Math.min(y1 + 1, rows), buffer);
+                ImageGenerator.fill(strip.view(buffer, cols), seed, strip.haloTop, numThreads);
+                stageNanos[0] += System.nanoTime() - start;
+                generated.put(strip);
+            }
+            return null;
+        };
+
+        Callable<Void> convolver = () -> {
+            for (int s = 0; s < strips; s++) {
+                Strip strip = generated.take();
+                byte[][] results = freeResults.take();
+                long start = System.nanoTime();
+                GrayImage[] targets = new GrayImage[results.length];
+                for (int k = 0; k < results.length; k++) {
+                    targets[k] = strip.view(results[k], cols);
+                    // The image's top and bottom rows are never written by the kernel; a
+                    // recycled buffer may still hold another strip's pixels there
+                    if (strip.haloTop == 0) {
+                        Arrays.fill(results[k], 0, cols, (byte) 0);
+                    }
+                    if (strip.haloBottom == rows) {
+                        int last = (strip.haloBottom - 1 - strip.haloTop) * cols;
+                        Arrays.fill(results[k], last, last + cols, (byte) 0);
+                    }
+                }
+                engine.applyAll(strip.view(strip.source, cols), kernelArray, targets);
+                stageNanos[1] += System.nanoTime() - start;
+                freeSources.put(strip.source);
+                strip.results = results;
+                filtered.put(strip);
+            }
+            return null;
+        };
+
+        Callable<Void> encoder = () -> {
+            ImageExporter.PngWriter[] writers = new ImageExporter.PngWriter[outputs.size()];
+            try {
+                for (int k = 0; k < writers.length; k++) {
+                    writers[k] = new ImageExporter.PngWriter(outputs.get(k), cols, rows, engine.pool(),
+                            Deflater.BEST_SPEED);
+                }
+                for (int s = 0; s < strips; s++) {
+                    Strip strip = filtered.take();
+                    long start = System.nanoTime();
+                    for (int k = 0; k < writers.length; k++) {
+                        writers[k].writeRows(strip.view(strip.results[k], cols), strip.y0 - strip.haloTop,
+                                strip.y1 - strip.haloTop);
+                    }
+                    stageNanos[2] += System.nanoTime() - start;
+                    freeResults.put(strip.results);
+                }
+                long start = System.nanoTime();
+                closeAll(writers);
+                stageNanos[2] += System.nanoTime() - start;
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                try {
+                    closeAll(writers);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            return null;
+        };
+
+        ExecutorService stages = Executors.newFixedThreadPool(3, runnable -> {
+            Thread thread = new Thread(runnable, "strip-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        try {
+            // A stage that fails leaves its neighbours blocked on the queues, so take the
+            // stages in completion order and stop the rest on the first failure
+            CompletionService<Void> completion = new ExecutorCompletionService<>(stages);
+            completion.submit(generator);
+            completion.submit(convolver);
+            completion.submit(encoder);
+            for (int i = 0; i < 3; i++) {
+                completion.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running the strip pipeline", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Strip pipeline stage failed", cause);
+        } finally {
+            stages.shutdownNow();
+        }
+        long bufferBytes = (long) depth * bufferRows * cols * (1 + kernelArray.length);
+        return new Stats(strips, height, depth, bufferBytes, System.nanoTime() - start, stageNanos[0],
+                stageNanos[1], stageNanos[2]);
+    }
+
+    private static void closeAll(ImageExporter.PngWriter[] writers) throws IOException {
+        IOException failure = null;
+        for (ImageExporter.PngWriter writer : writers) {
+            if (writer == null) {
+                continue;
+            }
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Image rows [y0, y1) held in buffers that also cover the halo rows [haloTop, haloBottom)
+    private static final class Strip {
+        final int y0, y1, haloTop, haloBottom;
+        final byte[] source;
+        byte[][] results;
+
+        Strip(int y0, int y1, int haloTop, int haloBottom, byte[] source) {
+            this.y0 = y0;
+            this.y1 = y1;
+            this.haloTop = haloTop;
+            this.haloBottom = haloBottom;
+            this.source = source;
+        }
+
+        GrayImage view(byte[] buffer, int cols) {
+            return new GrayImage(buffer, 0, cols, haloBottom - haloTop, cols);
+        }
+    }
+
+    public static final class Stats {
+        private final int strips;
+        private final int stripRows;
+        private final int depth;
+        private final long bufferBytes;
+        private final long wallNanos;
+        private final long generateNanos;
+        private final long convolveNanos;
+        private final long encodeNanos;
+
+        Stats(int strips, int stripRows, int depth, long bufferBytes, long wallNanos, long generateNanos,
+                long convolveNanos, long encodeNanos) {
+            this.strips = strips;
+            this.stripRows = stripRows;
+            this.depth = depth;
+            this.bufferBytes = bufferBytes;
+            this.wallNanos = wallNanos;
+            this.generateNanos = generateNanos;
+            this.convolveNanos = convolveNanos;
+            this.encodeNanos = encodeNanos;
+        }
+
+        public int strips() {
+            return strips;
+        }
+
+        public long wallNanos() {
+            return wallNanos;
+        }
+
+        public long generateNanos() {
+            return generateNanos;
+        }
+
+        public long convolveNanos() {
+            return convolveNanos;
+        }
+
+        public long encodeNanos() {
+            return encodeNanos;
+        }
+
+        // Bytes of strip buffers allocated, the bound on pixel data held at once
+        public long bufferBytes() {
+            return bufferBytes;
+        }
+
+        // Wall time of a run without overlap would be roughly the sum of the stages
+        public long slowestStageNanos() {
+            return Math.max(generateNanos, Math.max(convolveNanos, encodeNanos));
+        }
+
+        public String summary() {
+            return String.format("[Pipeline] %d strips of %d rows, %d in flight, %.1f MB of strip buffers%n"
+                    + "  Stage busy time (ms): generate %.1f, convolve %.1f, encode %.1f%n"
+                    + "  Wall time (ms): %.1f (sum of stages %.1f, slowest stage %.1f)",
+                    strips, stripRows, depth, bufferBytes / (1024.0 * 1024.0), generateNanos / 1e6,
+                    convolveNanos / 1e6, encodeNanos / 1e6, wallNanos / 1e6,
+                    (generateNanos + convolveNanos + encodeNanos) / 1e6, slowestStageNanos() / 1e6);
+        }
+    }
+}
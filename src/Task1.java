@@ -1,10 +1,10 @@
 package src;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
-import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 
 public class Task1 {
     // Define the Sharpen Kernel
@@ -24,100 +24,134 @@ public class Task1 {
     public static void main(String[] args) {
         System.out.println("Task 1: Single-threaded Implementation");
 
-        // Step 1: Generate the matrix
+        // Step 1: Generate the matrix (pass a seed as the first argument to reproduce a run)
+        long seed = parseSeed(args, "Task1");
         long start = System.nanoTime();
-        int[][] matrix = generateMatrix(10000, 10000);
+        GrayImage matrix = generateMatrix(10000, 10000, seed);
         long end = System.nanoTime();
-        System.out.println("Matrix generated successfully. Time (ms): " + (end - start) / 1e6);
+        System.out.println("Matrix generated successfully (seed " + seed + "). Time (ms): " + (end - start) / 1e6);
 
         // Step 2: Print a portion of the original matrix
         System.out.println("Original Matrix (First 10x10):");
         printMatrix(matrix, 10, 10);
 
-        // Step 3: Apply the sharpen filter
+        // Step 3: Apply the sharpen and edge detection filters in one fused pass
         start = System.nanoTime();
-        int[][] sharpenedMatrix = applyKernel(matrix, SHARPEN_KERNEL);
+        List<GrayImage> filtered = applyKernels(matrix, Arrays.asList(SHARPEN_KERNEL, EDGE_DETECTION_KERNEL));
         end = System.nanoTime();
+        GrayImage sharpenedMatrix = filtered.get(0);
+        GrayImage edgeDetectedMatrix = filtered.get(1);
         System.out.println("Sharpened Matrix (First 10x10):");
         printMatrix(sharpenedMatrix, 10, 10);
-        System.out.println("Sharpen filter applied. Time (ms): " + (end - start) / 1e6);
-
-        // Step 4: Apply the edge detection filter
-        start = System.nanoTime();
-        int[][] edgeDetectedMatrix = applyKernel(matrix, EDGE_DETECTION_KERNEL);
-        end = System.nanoTime();
         System.out.println("Edge Detected Matrix (First 10x10):");
         printMatrix(edgeDetectedMatrix, 10, 10);
-        System.out.println("Edge detection applied. Time (ms): " + (end - start) / 1e6);
+        System.out.println("Sharpen and edge detection filters applied. Time (ms): " + (end - start) / 1e6);
 
-        // Step 5: Save matrices as images
+        // Step 4: Save matrices as images
         saveMatrixAsImage(matrix, "original_matrix.png");
         saveMatrixAsImage(sharpenedMatrix, "sharpened_matrix.png");
         saveMatrixAsImage(edgeDetectedMatrix, "edge_detected_matrix.png");
     }
 
-    // Method to generate a random matrix
-    public static int[][] generateMatrix(int rows, int cols) {
-        int[][] matrix = new int[rows][cols];
-        Random rand = new Random();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                matrix[i][j] = rand.nextInt(256); // Random values between 0 and 255
+    // The seed passed as the first argument, or a random one if there is none or it is
+    // not a number
+    static long parseSeed(String[] args, String program) {
+        if (args.length > 0) {
+            try {
+                return Long.parseLong(args[0]);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid seed \"" + args[0] + "\". Usage: " + program
+                        + " [seed]. Using a random seed.");
             }
         }
-        return matrix;
+        return new Random().nextLong();
+    }
+
+    // Method to generate a random matrix
+    public static GrayImage generateMatrix(int rows, int cols) {
+        return generateMatrix(rows, cols, new Random().nextLong());
+    }
+
+    // Seeded single-threaded generation; the same seed always gives the same matrix
+    public static GrayImage generateMatrix(int rows, int cols, long seed) {
+        return ImageGenerator.generate(rows, cols, seed, 1);
     }
 
     // Method to apply a kernel to a matrix
-    public static int[][] applyKernel(int[][] matrix, int[][] kernel) {
-        int rows = matrix.length;
-        int cols = matrix[0].length;
-        int[][] result = new int[rows][cols];
+    public static GrayImage applyKernel(GrayImage matrix, int[][] kernel) {
+        GrayImage result = new GrayImage(matrix.width(), matrix.height());
+        applyKernel(matrix, kernel, result, 0, matrix.height());
+        return result;
+    }
+
+    // Apply a kernel of any odd size, e.g. Kernel.box(15), single-threaded; outside
+    // pixels are read through border instead of leaving the border black
+    public static GrayImage applyKernel(GrayImage matrix, Kernel kernel, BorderMode border) {
+        GrayImage result = new GrayImage(matrix.width(), matrix.height());
+        KernelConvolution.convolve(matrix, kernel, border, result, 0, 0, matrix.width(), matrix.height());
+        return result;
+    }
 
-        for (int i = 1; i < rows - 1; i++) {
+    // Apply several kernels in a single traversal, one result per kernel.
+    // Each 3x3 neighbourhood is read once for all kernels.
+    public static List<GrayImage> applyKernels(GrayImage matrix, List<int[][]> kernels) {
+        GrayImage[] results = new GrayImage[kernels.size()];
+        for (int k = 0; k < results.length; k++) {
+            results[k] = new GrayImage(matrix.width(), matrix.height());
+        }
+        Convolution.convolveAll(matrix, kernels.toArray(new int[0][][]), results,
+                0, 0, matrix.width(), matrix.height());
+        return Arrays.asList(results);
+    }
+
+    // Apply a 3x3 kernel to rows [startRow, endRow) of matrix, writing into result.
+    // Border rows and columns are skipped and left untouched (black).
+    public static void applyKernel(GrayImage matrix, int[][] kernel, GrayImage result, int startRow, int endRow) {
+        if (kernel.length != 3 || kernel[0].length != 3 || kernel[1].length != 3 || kernel[2].length != 3) {
+            throw new IllegalArgumentException("Only 3x3 kernels are supported.");
+        }
+        int rows = matrix.height();
+        int cols = matrix.width();
+        byte[] in = matrix.pixels();
+        byte[] out = result.pixels();
+
+        // Hoist the kernel weights out of the pixel loop
+        int k00 = kernel[0][0], k01 = kernel[0][1], k02 = kernel[0][2];
+        int k10 = kernel[1][0], k11 = kernel[1][1], k12 = kernel[1][2];
+        int k20 = kernel[2][0], k21 = kernel[2][1], k22 = kernel[2][2];
+
+        for (int i = Math.max(startRow, 1); i < Math.min(endRow, rows - 1); i++) {
+            int above = matrix.rowOffset(i - 1);
+            int center = matrix.rowOffset(i);
+            int below = matrix.rowOffset(i + 1);
+            int target = result.rowOffset(i);
             for (int j = 1; j < cols - 1; j++) {
-                int sum = 0;
-                for (int ki = -1; ki <= 1; ki++) {
-                    for (int kj = -1; kj <= 1; kj++) {
-                        sum += matrix[i + ki][j + kj] * kernel[ki + 1][kj + 1];
-                    }
-                }
-                result[i][j] = Math.min(Math.max(sum, 0), 255); // Clamp values to 0-255
+                int sum = (in[above + j - 1] & 0xFF) * k00 + (in[above + j] & 0xFF) * k01
+                        + (in[above + j + 1] & 0xFF) * k02
+                        + (in[center + j - 1] & 0xFF) * k10 + (in[center + j] & 0xFF) * k11
+                        + (in[center + j + 1] & 0xFF) * k12
+                        + (in[below + j - 1] & 0xFF) * k20 + (in[below + j] & 0xFF) * k21
+                        + (in[below + j + 1] & 0xFF) * k22;
+                out[target + j] = (byte) Math.min(Math.max(sum, 0), 255); // Clamp values to 0-255
             }
         }
-        return result;
     }
 
     // Method to print part of a matrix
-    public static void printMatrix(int[][] matrix, int rows, int cols) {
+    public static void printMatrix(GrayImage matrix, int rows, int cols) {
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                System.out.print(matrix[i][j] + " ");
+                System.out.print(matrix.get(j, i) + " ");
             }
             System.out.println();
         }
     }
 
-    public static void saveMatrixAsImage(int[][] matrix, String fileName) {
-        int rows = matrix.length;
-        int cols = matrix[0].length;
-
-        // Create a BufferedImage
-        BufferedImage image = new BufferedImage(cols, rows, BufferedImage.TYPE_BYTE_GRAY);
-
-        // Set pixel values
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                int value = matrix[i][j];
-                int gray = (value << 16) | (value << 8) | value; // Convert to grayscale
-                image.setRGB(j, i, gray);
-            }
-        }
-
-        // Save image as a PNG file
+    // Save a matrix as an image; the format follows the extension (.png, .pgm or .raw).
+    // PNG data is deflated in parallel chunks, so large images no longer encode serially.
+    public static void saveMatrixAsImage(GrayImage matrix, String fileName) {
         try {
-            File output = new File(fileName);
-            ImageIO.write(image, "png", output);
+            ImageExporter.save(matrix, Paths.get(fileName));
             System.out.println("Image saved: " + fileName);
         } catch (IOException e) {
             System.out.println("Error saving image: " + e.getMessage());
@@ -1,11 +1,20 @@
 package src;
 
-import java.util.Random;
-import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
-import java.io.File;
+import java.awt.Rectangle;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Task2 {
     // Define the Sharpen Kernel
@@ -22,6 +31,16 @@ public class Task2 {
             { -1, -1, -1 }
     };
 
+    // Tile-level retry limits for the fault-tolerant pass
+    static final int DEFAULT_TILE_RETRIES = 3;
+    // Timeouts are opt-in: without them (and without injected failures) tiles are
+    // convolved straight into the results
+    static final long DEFAULT_TILE_TIMEOUT_MILLIS = 0;
+    // Fraction of tiles the default validation recomputes with the gold standard
+    static final double DEFAULT_VALIDATION_SAMPLE = 0.01;
+    // Side of each generated image in batch mode
+    static final int DEFAULT_BATCH_IMAGE_SIZE = 512;
+
     public static void main(String[] args) {
         System.out.println("Task 2: Multi-threaded Implementation");
 
@@ -48,139 +67,251 @@ public class Task2 {
                 }
             }
 
-            // Step 1: Generate the matrix
+            System.out.println("Convolution backend: " + Convolution.backendName());
+
+            // Step 1: Generate the matrix (pass a seed as the first argument to reproduce a run)
+            long seed = Task1.parseSeed(args, "Task2");
+
+            // Batch mode (-Dsharpedges.batch=<images>): many moderate images through one shared pool
+            int batchImages = Integer.getInteger("sharpedges.batch", 0);
+            if (batchImages > 0) {
+                runBatch(batchImages, Integer.getInteger("sharpedges.batch.size", DEFAULT_BATCH_IMAGE_SIZE), seed,
+                        numThreads);
+                return;
+            }
+
+            // Pipeline mode (-Dsharpedges.pipeline=true): generation, filtering and encoding
+            // overlap strip by strip and the full matrix is never held in memory
+            if (Boolean.getBoolean("sharpedges.pipeline")) {
+                runPipeline(10000, 10000, seed, numThreads);
+                return;
+            }
+
             long start = System.nanoTime();
-            int[][] matrix = generateMatrix(10000, 10000);
+            GrayImage matrix = generateMatrix(10000, 10000, seed, numThreads);
             long end = System.nanoTime();
-            System.out.println("Matrix generated successfully. Time (ms): " + (end - start) / 1e6);
-
-            // Step 2: Apply the sharpen filter using multiple threads
-            start = System.nanoTime();
-            int[][] sharpenedMatrix = dynamicThreadKernelApplication(matrix, SHARPEN_KERNEL, numThreads);
-            end = System.nanoTime();
-            System.out.println("Sharpened filter applied. Time (ms): " + (end - start) / 1e6);
+            System.out.println("Matrix generated successfully (seed " + seed + "). Time (ms): " + (end - start) / 1e6);
 
-            // Step 3: Apply the edge detection filter using multiple threads
+            // Step 2: Apply the sharpen and edge detection filters in one fused multi-threaded pass;
+            // a tile that fails or stalls is retried on its own instead of redoing the image
             start = System.nanoTime();
-            int[][] edgeDetectedMatrix = dynamicThreadKernelApplication(matrix, EDGE_DETECTION_KERNEL, numThreads);
+            GrayImage sharpenedMatrix = new GrayImage(matrix.width(), matrix.height());
+            GrayImage edgeDetectedMatrix = new GrayImage(matrix.width(), matrix.height());
+            FaultTolerantConvolution.Report report;
+            try {
+                report = faultTolerantKernelApplication(matrix, new int[][][] { SHARPEN_KERNEL, EDGE_DETECTION_KERNEL },
+                        new GrayImage[] { sharpenedMatrix, edgeDetectedMatrix }, numThreads, seed);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.out.println("Interrupted while applying the filters.");
+                return;
+            }
             end = System.nanoTime();
-            System.out.println("Edge detection filter applied. Time (ms): " + (end - start) / 1e6);
+            System.out.println("Sharpen and edge detection filters applied. Time (ms): " + (end - start) / 1e6);
+            System.out.println(report.summary());
+            if (!report.isComplete()) {
+                System.out.println("Tiles left unfiltered after their last retry: " + report.failedRegions());
+            }
 
-            // Step 4: Save matrices as images
+            // Step 3: Save matrices as images
             saveMatrixAsImage(sharpenedMatrix, "sharpened_matrix_mt.png");
             saveMatrixAsImage(edgeDetectedMatrix, "edge_detected_matrix_mt.png");
 
-            // Validation step: Compare with gold standard
-            boolean isValid = validateWithGoldStandard(sharpenedMatrix,
-                    dynamicThreadKernelApplication(matrix, SHARPEN_KERNEL, 1));
-            System.out.println("Gold standard validation: " + (isValid ? "Passed" : "Failed"));
+            // Validation step: tile digests and a sampled gold-standard recompute, or the full
+            // serial recompute with -Dsharpedges.validate=full
+            validateOutputs(matrix, new int[][][] { SHARPEN_KERNEL, EDGE_DETECTION_KERNEL },
+                    new GrayImage[] { sharpenedMatrix, edgeDetectedMatrix }, seed, numThreads);
         }
     }
 
-    // Method to generate a random matrix
-    public static int[][] generateMatrix(int rows, int cols) {
-        int[][] matrix = new int[rows][cols];
-        Random rand = new Random();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                matrix[i][j] = rand.nextInt(256); // Random values between 0 and 255
+    // Filter count generated size x size images with both kernels as one batch and
+    // report images per second; the images are generated as the batch consumes them
+    public static void runBatch(int count, int size, long seed, int numThreads) {
+        BatchConvolution batch = new BatchConvolution(numThreads);
+        Iterator<GrayImage> images = new Iterator<GrayImage>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
             }
+
+            @Override
+            public GrayImage next() {
+                if (next >= count) {
+                    throw new NoSuchElementException();
+                }
+                return ImageGenerator.generate(size, size, seed + next++, 1);
+            }
+        };
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+        try {
+            batch.submitAll(images, Arrays.asList(SHARPEN_KERNEL, EDGE_DETECTION_KERNEL), 4 * numThreads,
+                    (index, source, results, failure) -> {
+                        if (failure != null) {
+                            failed.incrementAndGet();
+                        }
+                    }).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Interrupted while submitting the batch.");
+            return;
         }
-        return matrix;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Batch of %d %dx%d images filtered (%d failed). Time (ms): %.1f, %.1f images/s%n", count,
+                size, size, failed.get(), seconds * 1e3, count / seconds);
     }
 
-    // Dynamic workload balancing for kernel application
-    public static int[][] dynamicThreadKernelApplication(int[][] matrix, int[][] kernel, int numThreads) {
-        int rows = matrix.length;
-        int cols = matrix[0].length;
-        int[][] result = new int[rows][cols];
-
-        Thread[] threads = new Thread[numThreads];
-        int chunkSize = (rows + numThreads - 1) / numThreads; // Handle uneven division
+    // Generate, filter and save in overlapping strips; prints the per-stage timings
+    public static void runPipeline(int rows, int cols, long seed, int numThreads) {
+        try {
+            StripPipeline.Stats stats = new StripPipeline(numThreads).run(rows, cols, seed,
+                    Arrays.asList(SHARPEN_KERNEL, EDGE_DETECTION_KERNEL),
+                    Arrays.asList(Paths.get("sharpened_matrix_mt.png"), Paths.get("edge_detected_matrix_mt.png")));
+            System.out.println("Pipelined generation, filtering and saving complete (seed " + seed + ").");
+            System.out.println(stats.summary());
+            System.out.println("Images saved: sharpened_matrix_mt.png, edge_detected_matrix_mt.png");
+        } catch (IOException e) {
+            System.out.println("Error in pipelined processing: " + e.getMessage());
+        }
+    }
 
-        for (int i = 0; i < numThreads; i++) {
-            int startRow = i * chunkSize;
-            int endRow = Math.min(startRow + chunkSize, rows);
+    // Method to generate a random matrix
+    public static GrayImage generateMatrix(int rows, int cols) {
+        return generateMatrix(rows, cols, new Random().nextLong(), 1);
+    }
 
-            threads[i] = new WorkerThread(startRow, endRow, matrix, kernel, result);
-            threads[i].start();
-        }
+    // Seeded generation spread over numThreads; the pixels depend only on the seed
+    public static GrayImage generateMatrix(int rows, int cols, long seed, int numThreads) {
+        return ImageGenerator.generate(rows, cols, seed, numThreads);
+    }
 
-        for (Thread thread : threads) {
-            try {
-                thread.join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }
+    // Dynamic workload balancing for kernel application: the image is split into
+    // cache-sized tiles that a persistent work-stealing pool of numThreads workers shares
+    public static GrayImage dynamicThreadKernelApplication(GrayImage matrix, int[][] kernel, int numThreads) {
+        return TiledConvolutionEngine.forParallelism(numThreads).apply(matrix, kernel);
+    }
 
-        return result;
+    // Kernel of any odd size with a border mode, tiled over numThreads workers
+    public static GrayImage dynamicThreadKernelApplication(GrayImage matrix, Kernel kernel, BorderMode border,
+            int numThreads) {
+        return TiledConvolutionEngine.forParallelism(numThreads).apply(matrix, kernel, border);
     }
 
-    // Worker thread class
-    static class WorkerThread extends Thread {
-        private final int startRow, endRow;
-        private final int[][] matrix, result, kernel;
-
-        public WorkerThread(int startRow, int endRow, int[][] matrix, int[][] kernel, int[][] result) {
-            this.startRow = startRow;
-            this.endRow = endRow;
-            this.matrix = matrix;
-            this.result = result;
-            this.kernel = kernel;
-        }
+    // Fused variant: applies every kernel in one pass over the image, one result per kernel
+    public static List<GrayImage> dynamicThreadKernelApplication(GrayImage matrix, List<int[][]> kernels,
+            int numThreads) {
+        return TiledConvolutionEngine.forParallelism(numThreads).applyAll(matrix, kernels);
+    }
 
-        @Override
-        public void run() {
-            for (int i = startRow; i < endRow; i++) {
-                for (int j = 1; j < matrix[0].length - 1; j++) {
-                    if (i == 0 || i == matrix.length - 1)
-                        continue; // Skip boundaries
-                    int sum = 0;
-                    for (int ki = -1; ki <= 1; ki++) {
-                        for (int kj = -1; kj <= 1; kj++) {
-                            sum += matrix[i + ki][j + kj] * kernel[ki + 1][kj + 1];
-                        }
-                    }
-                    result[i][j] = Math.min(Math.max(sum, 0), 255); // Clamp values
-                }
+    // Fused pass with tile-level retries. Retries, tile timeout and injected tile failures
+    // come from -Dsharpedges.tile.retries/.timeout/.failures (plus the -Dsharpedges.failures
+    // model shared with Task 4); failures are keyed by the seed, so runs are reproducible.
+    public static FaultTolerantConvolution.Report faultTolerantKernelApplication(GrayImage matrix,
+            int[][][] kernels, GrayImage[] results, int numThreads, long seed) throws InterruptedException {
+        int maxRetries = Integer.getInteger("sharpedges.tile.retries", DEFAULT_TILE_RETRIES);
+        long tileTimeoutMillis = Long.getLong("sharpedges.tile.timeout", DEFAULT_TILE_TIMEOUT_MILLIS);
+        double failureProbability = Double.parseDouble(System.getProperty("sharpedges.tile.failures", "0"));
+        String failureModel = System.getProperty("sharpedges.failures");
+        FailureInjector failureInjector = null;
+        if (failureProbability > 0 || failureModel != null) {
+            try {
+                failureInjector = FailureInjector.fromSpec(failureModel, seed, failureProbability);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid failure model (" + e.getMessage() + "). Using Bernoulli failures.");
+                failureInjector = FailureInjector.bernoulli(seed, failureProbability);
             }
         }
+        RetryPolicy retryPolicy = RetryPolicy.exponentialBackoff(maxRetries, 10, 2.0, 1000, 0.5);
+        return new FaultTolerantConvolution(TiledConvolutionEngine.forParallelism(numThreads), retryPolicy,
+                tileTimeoutMillis, failureInjector).applyAll(matrix, kernels, results, new BitSet());
+    }
+
+    // Incremental variant: after the pixels of matrix inside the dirty rectangles changed,
+    // bring previousOutput up to date by recomputing only the regions they affect
+    public static void dynamicThreadKernelUpdate(GrayImage matrix, int[][] kernel, GrayImage previousOutput,
+            Collection<Rectangle> dirty, int numThreads) {
+        TiledConvolutionEngine.forParallelism(numThreads).update(matrix, kernel, previousOutput, dirty);
     }
 
     // Method to save a matrix as an image
-    public static void saveMatrixAsImage(int[][] matrix, String fileName) {
-        int rows = matrix.length;
-        int cols = matrix[0].length;
+    public static void saveMatrixAsImage(GrayImage matrix, String fileName) {
+        Task1.saveMatrixAsImage(matrix, fileName);
+    }
 
-        BufferedImage image = new BufferedImage(cols, rows, BufferedImage.TYPE_BYTE_GRAY);
+    // Validate outputs[k] (kernels[k] applied to matrix) in the mode set by -Dsharpedges.validate:
+    // - sample (default): recompute a -Dsharpedges.validate.sample fraction of tiles with the
+    //   gold standard and, if -Dsharpedges.reference is set, digest every output tile in
+    //   parallel and compare with the digests in that file (saving them if it does not exist)
+    // - full: recompute everything with the serial gold standard
+    // - none: skip validation
+    public static void validateOutputs(GrayImage matrix, int[][][] kernels, GrayImage[] outputs, long seed,
+            int numThreads) {
+        String mode = System.getProperty("sharpedges.validate", "sample");
+        if (mode.equals("none")) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (mode.equals("full")) {
+            // Task1's scalar row loop, not Convolution, so the check does not share the
+            // backend under test
+            boolean isValid = true;
+            for (int k = 0; k < kernels.length; k++) {
+                GrayImage expected = new GrayImage(matrix.width(), matrix.height());
+                Task1.applyKernel(matrix, kernels[k], expected, 0, matrix.height());
+                isValid &= validateWithGoldStandard(expected, outputs[k]);
+            }
+            System.out.println("Gold standard validation: " + (isValid ? "Passed" : "Failed") + ". Time (ms): "
+                    + (System.nanoTime() - start) / 1e6);
+            return;
+        }
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                int value = matrix[i][j];
-                int gray = (value << 16) | (value << 8) | value; // Convert to grayscale
-                image.setRGB(j, i, gray);
+        TiledConvolutionEngine engine = TiledConvolutionEngine.forParallelism(numThreads);
+        // Digesting reads every output pixel, so only do it when there is a reference to
+        // compare with or save to
+        String reference = System.getProperty("sharpedges.reference");
+        if (reference != null) {
+            List<TileChecksums> digests = new ArrayList<>();
+            for (GrayImage output : outputs) {
+                digests.add(TileChecksums.compute(output, engine));
+            }
+            Path file = Paths.get(reference);
+            try {
+                if (Files.exists(file)) {
+                    List<TileChecksums> expected = TileChecksums.load(file, seed);
+                    int mismatches = 0;
+                    for (int k = 0; k < digests.size(); k++) {
+                        mismatches += digests.get(k).mismatches(expected.get(k)).size();
+                    }
+                    System.out.println("Reference digest validation: "
+                            + (mismatches == 0 ? "Passed" : "Failed (" + mismatches + " tiles differ)"));
+                } else {
+                    TileChecksums.save(file, seed, digests);
+                    System.out.println("Reference digests saved: " + file);
+                }
+            } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                System.out.println("Reference digest validation skipped: " + e.getMessage());
             }
         }
 
-        try {
-            File output = new File(fileName);
-            ImageIO.write(image, "png", output);
-            System.out.println("Image saved: " + fileName);
-        } catch (IOException e) {
-            System.out.println("Error saving image: " + e.getMessage());
+        int tiles = ((matrix.width() + engine.tileWidth() - 1) / engine.tileWidth())
+                * ((matrix.height() + engine.tileHeight() - 1) / engine.tileHeight());
+        double sampleFraction = Double.parseDouble(System.getProperty("sharpedges.validate.sample",
+                String.valueOf(DEFAULT_VALIDATION_SAMPLE)));
+        int mismatches = 0;
+        for (int k = 0; k < kernels.length; k++) {
+            mismatches += TileChecksums.spotCheck(matrix, kernels[k], outputs[k], engine, sampleFraction, seed + k)
+                    .size();
         }
+        System.out.printf("Spot-check validation (%.1f%% of %d tiles against the gold standard): %s. Time (ms): %s%n",
+                sampleFraction * 100, tiles,
+                mismatches == 0 ? "Passed" : "Failed (" + mismatches + " tiles differ)",
+                (System.nanoTime() - start) / 1e6);
     }
 
     // Method to validate output against a gold standard
-    public static boolean validateWithGoldStandard(int[][] goldStandard, int[][] multiThreadedOutput) {
-        for (int i = 0; i < goldStandard.length; i++) {
-            for (int j = 0; j < goldStandard[0].length; j++) {
-                if (goldStandard[i][j] != multiThreadedOutput[i][j]) {
-                    return false;
-                }
-            }
-        }
-        return true;
+    public static boolean validateWithGoldStandard(GrayImage expected, GrayImage actual) {
+        return expected.contentEquals(actual);
     }
 }
\ No newline at end of file
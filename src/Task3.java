@@ -1,6 +1,16 @@
 package src;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -9,9 +19,19 @@ public class Task3 {
 
     public static void main(String[] args) {
         logger.info("Task 3: Enhanced Simulation of the Network");
+        EventLog.registerThread(Thread.currentThread());
+
+        // "virtual [messages] [maxConcurrent]" runs the latency simulation at scale
+        if (args.length > 0 && args[0].equalsIgnoreCase("virtual")) {
+            int messages = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+            int maxConcurrent = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+            runVirtualThreadSimulation(messages, maxConcurrent);
+            return;
+        }
 
         // Step 1: Create an enhanced thread pool with 4 threads
         EnhancedThreadPool threadPool = new EnhancedThreadPool(4);
+        threadPool.startMetricsReporter(500, System.out);
 
         // Step 2: Submit 10 tasks (messages) to the thread pool
         for (int i = 1; i <= 10; i++) {
@@ -29,31 +49,378 @@ public class Task3 {
 
         // Step 3: Shutdown the thread pool
         threadPool.shutdown();
+        System.out.println(threadPool.metrics().snapshot().summary());
+    }
+
+    // Simulate many latency-bound messages with one virtual thread per message
+    private static void runVirtualThreadSimulation(int messages, int maxConcurrent) {
+        EnhancedThreadPool threadPool = EnhancedThreadPool.virtualThreadPerTask(maxConcurrent);
+        AtomicInteger processed = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 1; i <= messages; i++) {
+            threadPool.submitTask(() -> {
+                try {
+                    Thread.sleep(200); // Simulate 200ms delay
+                    processed.incrementAndGet();
+                } catch (InterruptedException e) {
+                    logger.log(Level.SEVERE, "Task interrupted: " + e.getMessage());
+                }
+            });
+        }
+        threadPool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info(String.format("Processed %d of %d messages in %.2f s (%.0f messages/s).",
+                processed.get(), messages, seconds, processed.get() / seconds));
     }
 }
 
 // Enhanced Thread Pool Implementation
+// Runs tasks either on a fixed set of worker threads fed by a shared TaskQueue, or,
+// when created with virtualThreadPerTask, on a fresh virtual thread per task.
 class EnhancedThreadPool {
+    // Thread cap used when virtual threads are unavailable and no limit was given
+    public static final int FALLBACK_MAX_CONCURRENCY = 256;
+    // Tasks a worker moves from the shared queue to its own deque in one go
+    public static final int DRAIN_BATCH = 8;
+
     private final WorkerThread[] threads;
     private final TaskQueue taskQueue;
+    private final RejectionPolicy rejectionPolicy;
+    private final PoolMetrics metrics;
+    // Workers parked in awaitWork, woken one at a time as tasks arrive
+    private final ConcurrentLinkedQueue<WorkerThread> idleWorkers = new ConcurrentLinkedQueue<>();
+
+    // Thread-per-task mode; taskThreadFactory is null for the worker pool
+    private final ThreadFactory taskThreadFactory;
+    private final Semaphore concurrencyLimit;
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private volatile boolean shutdown;
 
     public EnhancedThreadPool(int numThreads) {
-        taskQueue = new TaskQueue();
+        this(numThreads, TaskQueue.DEFAULT_CAPACITY);
+    }
+
+    public EnhancedThreadPool(int numThreads, int queueCapacity) {
+        this(numThreads, queueCapacity, RejectionPolicy.BLOCK);
+    }
+
+    // Pool whose shared queue holds at most queueCapacity tasks (rounded up to a power
+    // of two); rejectionPolicy decides what submitTask does when it is full
+    public EnhancedThreadPool(int numThreads, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        taskQueue = new TaskQueue(queueCapacity);
+        this.rejectionPolicy = rejectionPolicy;
+        taskThreadFactory = null;
+        concurrencyLimit = null;
+        metrics = new PoolMetrics(numThreads);
         threads = new WorkerThread[numThreads];
         for (int i = 0; i < numThreads; i++) {
-            threads[i] = new WorkerThread(taskQueue, i + 1);
-            threads[i].start();
-            System.out.println("Thread " + threads[i].getName() + " started.");
+            threads[i] = new WorkerThread(this, i + 1, metrics.worker(i));
+        }
+        // Start only once every worker exists, since workers steal from each other
+        for (WorkerThread thread : threads) {
+            EventLog.registerThread(thread);
+            thread.start();
+        }
+    }
+
+    private EnhancedThreadPool(ThreadFactory taskThreadFactory, int maxConcurrent) {
+        this.taskQueue = null;
+        this.rejectionPolicy = RejectionPolicy.BLOCK;
+        this.threads = new WorkerThread[0];
+        this.metrics = new PoolMetrics(0); // Thread-per-task mode is not instrumented
+        this.taskThreadFactory = taskThreadFactory;
+        this.concurrencyLimit = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+    }
+
+    // Pool that starts one virtual thread per task (JDK 21+), so tasks that block, such
+    // as simulated network latency, park a cheap virtual thread instead of holding an
+    // OS thread. maxConcurrent caps the tasks in flight; submitTask waits for a free
+    // slot once the cap is reached (<= 0 means unlimited). On JVMs without virtual
+    // threads it falls back to platform threads, capped at FALLBACK_MAX_CONCURRENCY
+    // unless a limit is given.
+    public static EnhancedThreadPool virtualThreadPerTask(int maxConcurrent) {
+        ThreadFactory factory = virtualThreadFactory();
+        if (factory == null) {
+            factory = Executors.defaultThreadFactory();
+            if (maxConcurrent <= 0) {
+                maxConcurrent = FALLBACK_MAX_CONCURRENCY;
+            }
+            EventLog.record(EventLog.EventType.VIRTUAL_THREADS_UNAVAILABLE, 0, maxConcurrent);
+        }
+        return new EnhancedThreadPool(factory, maxConcurrent);
+    }
+
+    // Thread.ofVirtual().name("virtual-", 0).factory(), looked up reflectively so the
+    // pool still compiles and runs on JDKs without virtual threads
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "virtual-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null; // Older JDK, or virtual threads still in preview
+        }
+    }
+
+    public boolean isThreadPerTask() {
+        return taskThreadFactory != null;
+    }
+
+    public PoolMetrics metrics() {
+        return metrics;
+    }
+
+    // Print a metrics summary every periodMillis until the pool shuts down
+    public void startMetricsReporter(long periodMillis, java.io.PrintStream out) {
+        metrics.startReporter(this::queuedTasks, periodMillis, out);
+    }
+
+    // Tasks waiting in the shared queue and in the workers' deques
+    public int queuedTasks() {
+        if (taskQueue == null) {
+            return 0;
         }
+        int queued = taskQueue.size();
+        for (WorkerThread thread : threads) {
+            queued += thread.localTaskCount();
+        }
+        return queued;
     }
 
     public void submitTask(Runnable task) {
-        System.out.println("Submitting a task.");
-        taskQueue.enqueue(task);
+        if (taskThreadFactory != null) {
+            startTaskThread(task);
+            return;
+        }
+        // Stamp the submit time for the queue-wait histogram
+        task = new TimedTask(task);
+        // Task ids in the event log are identity hashes, enough to pair up a task's events
+        EventLog.record(EventLog.EventType.TASK_SUBMITTED, System.identityHashCode(task));
+        Thread current = Thread.currentThread();
+        if (current instanceof WorkerThread && ((WorkerThread) current).belongsTo(this)) {
+            // Spawned from a running task: keep it on this worker's own deque
+            ((WorkerThread) current).pushLocal(task);
+        } else if (!enqueue(task)) {
+            return; // Ran in the caller instead
+        }
+        signalIdleWorker();
+    }
+
+    // Submit several tasks at once: external batches claim queue slots in runs with one
+    // CAS each and wake idle workers once, instead of paying the handoff per task.
+    // Tasks that do not fit fall back to the rejection policy one at a time.
+    public void submitAll(Collection<? extends Runnable> tasks) {
+        if (taskThreadFactory != null) {
+            for (Runnable task : tasks) {
+                startTaskThread(task);
+            }
+            return;
+        }
+        List<Runnable> batch = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            TimedTask timed = new TimedTask(task);
+            EventLog.record(EventLog.EventType.TASK_SUBMITTED, System.identityHashCode(timed));
+            batch.add(timed);
+        }
+        Thread current = Thread.currentThread();
+        if (current instanceof WorkerThread && ((WorkerThread) current).belongsTo(this)) {
+            for (Runnable task : batch) {
+                ((WorkerThread) current).pushLocal(task);
+            }
+        } else {
+            int added = taskQueue.offerAll(batch, 0);
+            signalIdleWorkers(added); // Before enqueue below may wait for them to make room
+            for (int i = added; i < batch.size(); i++) {
+                if (enqueue(batch.get(i))) {
+                    signalIdleWorker();
+                }
+            }
+            return;
+        }
+        signalIdleWorkers(batch.size());
+    }
+
+    private void signalIdleWorkers(int count) {
+        for (int i = 0; i < count && !idleWorkers.isEmpty(); i++) {
+            signalIdleWorker();
+        }
+    }
+
+    // Put an external task on the shared queue, applying the rejection policy if it is
+    // full; returns false if the task was run by the caller instead
+    private boolean enqueue(Runnable task) {
+        switch (rejectionPolicy) {
+            case BLOCK:
+                try {
+                    taskQueue.enqueue(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for queue space", e);
+                }
+                return true;
+            case CALLER_RUNS:
+                if (taskQueue.offer(task)) {
+                    return true;
+                }
+                metrics.taskRanInCaller();
+                task.run();
+                return false;
+            case DROP_OLDEST:
+                while (!taskQueue.offer(task)) {
+                    if (taskQueue.poll() != null) {
+                        metrics.taskDropped();
+                    } else {
+                        // Full and empty at once: another thread is mid-way through the
+                        // head slot, so let it finish instead of spinning
+                        Thread.yield();
+                    }
+                }
+                return true;
+            default:
+                if (!taskQueue.offer(task)) {
+                    metrics.taskRejected();
+                    throw new RejectedExecutionException("Task queue is full");
+                }
+                return true;
+        }
+    }
+
+    // Next task for worker: its own deque first, then a batch from the shared queue
+    // (moved into the worker's deque, where idle workers can still steal it), then stealing
+    Runnable findTask(WorkerThread worker) {
+        Runnable task = worker.pollLocal();
+        if (task == null && worker.drainFrom(taskQueue, DRAIN_BATCH) > 0) {
+            task = worker.pollLocal();
+        }
+        if (task == null) {
+            task = steal(worker);
+        }
+        return task;
+    }
+
+    // Scan the other workers, starting at a random victim to spread contention
+    private Runnable steal(WorkerThread thief) {
+        int start = ThreadLocalRandom.current().nextInt(threads.length);
+        for (int i = 0; i < threads.length; i++) {
+            WorkerThread victim = threads[(start + i) % threads.length];
+            if (victim != thief) {
+                Runnable task = victim.steal();
+                if (task != null) {
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean hasQueuedWork() {
+        if (taskQueue.size() > 0) {
+            return true;
+        }
+        for (WorkerThread thread : threads) {
+            if (thread.hasLocalTasks()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Park an idle worker until a task is submitted or the pool shuts down
+    void awaitWork(WorkerThread worker) {
+        idleWorkers.add(worker);
+        // Re-check after registering so a concurrent submit cannot be missed
+        if (hasQueuedWork() || !worker.isRunning()) {
+            if (!idleWorkers.remove(worker)) {
+                signalIdleWorker(); // Pass on a wake-up we no longer need
+            }
+            return;
+        }
+        LockSupport.park(this);
+        idleWorkers.remove(worker);
+        Thread.interrupted(); // A shutdown interrupt only needs to wake the worker
+    }
+
+    private void signalIdleWorker() {
+        if (!idleWorkers.isEmpty()) {
+            WorkerThread worker = idleWorkers.poll();
+            if (worker != null) {
+                LockSupport.unpark(worker);
+            }
+        }
+    }
+
+    private void startTaskThread(Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Thread pool has been shut down");
+        }
+        if (concurrencyLimit != null) {
+            try {
+                concurrencyLimit.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for a free task slot", e);
+            }
+        }
+        // Checked again under the lock shutdown() takes, so no task starts after it returns
+        synchronized (activeTasks) {
+            if (shutdown) {
+                if (concurrencyLimit != null) {
+                    concurrencyLimit.release();
+                }
+                throw new RejectedExecutionException("Thread pool has been shut down");
+            }
+            activeTasks.incrementAndGet();
+        }
+        boolean started = false;
+        try {
+            taskThreadFactory.newThread(() -> {
+                try {
+                    task.run();
+                } finally {
+                    taskThreadFinished();
+                }
+            }).start();
+            started = true;
+        } finally {
+            if (!started) {
+                taskThreadFinished();
+            }
+        }
+    }
+
+    // Return the task's slot and wake shutdown() when the last task is done
+    private void taskThreadFinished() {
+        if (concurrencyLimit != null) {
+            concurrencyLimit.release();
+        }
+        if (activeTasks.decrementAndGet() == 0) {
+            synchronized (activeTasks) {
+                activeTasks.notifyAll();
+            }
+        }
     }
 
     public void shutdown() {
+        EventLog.flush();
         System.out.println("Initiating shutdown process...");
+        if (taskThreadFactory != null) {
+            // Stop accepting tasks and wait for every submitted one to finish
+            synchronized (activeTasks) {
+                shutdown = true;
+                while (activeTasks.get() > 0) {
+                    try {
+                        activeTasks.wait();
+                    } catch (InterruptedException e) {
+                        System.out.println("Error while waiting for tasks to finish: " + e.getMessage());
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            System.out.println("All task threads have finished; shut down gracefully.");
+            return;
+        }
         for (WorkerThread thread : threads) {
             thread.shutdown();
         }
@@ -64,64 +431,168 @@ class EnhancedThreadPool {
                 System.out.println("Error while waiting for thread to finish: " + e.getMessage());
             }
         }
+        metrics.stop();
+        EventLog.flush();
         System.out.println("All threads have been shut down gracefully.");
     }
 }
 
-// Thread-Safe Task Queue
+// A submitted task together with the time it was submitted
+final class TimedTask implements Runnable {
+    private final Runnable task;
+    final long submittedAt = System.nanoTime();
+
+    TimedTask(Runnable task) {
+        this.task = task;
+    }
+
+    @Override
+    public void run() {
+        task.run();
+    }
+}
+
+// Thread-Safe Task Queue backed by a bounded lock-free ring buffer.
+// Producers and workers never share a monitor; when the queue is full, enqueue parks
+// the submitter and offer refuses the task, and an empty queue parks the worker until
+// a task arrives.
 class TaskQueue {
-    private final LinkedList<Runnable> queue = new LinkedList<>();
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final MpmcQueue<Runnable> queue;
 
-    public synchronized void enqueue(Runnable task) {
-        queue.addLast(task);
-        System.out.println("Task added to queue. Current queue size: " + queue.size());
-        notify(); // Notify waiting threads
+    public TaskQueue() {
+        this(DEFAULT_CAPACITY);
     }
 
-    public synchronized Runnable dequeue() throws InterruptedException {
-        while (queue.isEmpty()) {
-            System.out.println("Waiting for a task...");
-            wait(); // Wait until a task is available
-        }
-        Runnable task = queue.removeFirst();
-        System.out.println("Task dequeued. Remaining queue size: " + queue.size());
-        return task;
+    public TaskQueue(int capacity) {
+        queue = new MpmcQueue<>(capacity);
+    }
+
+    public void enqueue(Runnable task) throws InterruptedException {
+        queue.put(task); // Wait for space if the queue is full
+    }
+
+    public Runnable dequeue() throws InterruptedException {
+        return queue.take(); // Wait until a task is available
+    }
+
+    // Add task if there is room; never blocks
+    public boolean offer(Runnable task) {
+        return queue.offer(task);
     }
 
-    public synchronized int size() {
+    // Add tasks[from...] until the queue is full; returns how many were added
+    public int offerAll(List<? extends Runnable> tasks, int from) {
+        return queue.offerAll(tasks, from);
+    }
+
+    // Move up to maxTasks tasks into target; returns how many were moved. Never blocks.
+    public int drainTo(Collection<? super Runnable> target, int maxTasks) {
+        return queue.drainTo(target, maxTasks);
+    }
+
+    // Next task, or null if the queue is empty; never blocks
+    public Runnable poll() {
+        return queue.poll();
+    }
+
+    public int size() {
         return queue.size();
     }
 }
 
-// Worker Thread for Processing Tasks
+// Worker Thread for Processing Tasks.
+// Each worker owns a WorkStealingDeque: tasks it submits while running are pushed to
+// its bottom and popped from there (LIFO, so related work stays in this core's cache),
+// while idle workers steal from the top. Only externally submitted tasks go through
+// the shared TaskQueue.
 class WorkerThread extends Thread {
-    private final TaskQueue taskQueue;
-    private boolean running = true;
+    private final EnhancedThreadPool pool;
+    private final WorkStealingDeque<Runnable> localTasks = new WorkStealingDeque<>();
+    // Reused for each batch taken from the shared queue
+    private final List<Runnable> drained = new ArrayList<>();
+    private volatile boolean running = true;
     private final int threadId;
+    private final PoolMetrics.Worker metrics;
 
-    public WorkerThread(TaskQueue taskQueue, int threadId) {
-        this.taskQueue = taskQueue;
+    public WorkerThread(EnhancedThreadPool pool, int threadId, PoolMetrics.Worker metrics) {
+        this.pool = pool;
         this.threadId = threadId;
+        this.metrics = metrics;
     }
 
     public void run() {
-        System.out.println("Thread-" + threadId + " is running.");
-        while (running || taskQueue.size() != 0) {
+        EventLog.record(EventLog.EventType.WORKER_STARTED, threadId);
+        while (true) {
+            Runnable task = pool.findTask(this);
+            if (task == null) {
+                if (!running)
+                    break; // Exit loop if shutdown and no work is left anywhere
+                pool.awaitWork(this);
+                continue;
+            }
+            int taskId = System.identityHashCode(task);
+            EventLog.record(EventLog.EventType.TASK_STARTED, taskId);
+            long start = System.nanoTime();
             try {
-                Runnable task = taskQueue.dequeue();
-                System.out.println("Thread-" + threadId + " dequeued a task.");
                 task.run();
-                System.out.println("Thread-" + threadId + " completed a task.");
-            } catch (InterruptedException e) {
-                if (!running)
-                    break; // Exit loop if shutdown
+                metrics.taskCompleted();
+                EventLog.record(EventLog.EventType.TASK_COMPLETED, taskId);
+            } catch (RuntimeException e) {
+                metrics.taskFailed();
+                EventLog.record(EventLog.EventType.TASK_FAILED, taskId, 1);
+                throw e;
+            } finally {
+                long submittedAt = task instanceof TimedTask ? ((TimedTask) task).submittedAt : start;
+                metrics.taskRan(start - submittedAt, System.nanoTime() - start);
             }
         }
-        System.out.println("Thread-" + threadId + " has completed all tasks and is exiting.");
+        EventLog.record(EventLog.EventType.WORKER_STOPPED, threadId);
     }
 
     public void shutdown() {
         running = false;
         interrupt();
     }
-}
\ No newline at end of file
+
+    boolean isRunning() {
+        return running;
+    }
+
+    boolean belongsTo(EnhancedThreadPool owner) {
+        return pool == owner;
+    }
+
+    void pushLocal(Runnable task) {
+        localTasks.push(task);
+    }
+
+    Runnable pollLocal() {
+        return localTasks.pop();
+    }
+
+    // Move up to maxTasks from the shared queue to this worker's deque. They are pushed
+    // newest first, so this worker pops them in queue order and thieves take the newest.
+    int drainFrom(TaskQueue queue, int maxTasks) {
+        int count = queue.drainTo(drained, maxTasks);
+        for (int i = count - 1; i >= 0; i--) {
+            localTasks.push(drained.get(i));
+        }
+        drained.clear();
+        return count;
+    }
+
+    // Called by other workers: take the oldest local task
+    Runnable steal() {
+        return localTasks.steal();
+    }
+
+    boolean hasLocalTasks() {
+        return !localTasks.isEmpty();
+    }
+
+    int localTaskCount() {
+        return localTasks.size();
+    }
+}
@@ -1,125 +1,441 @@
 package src;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Random;
 
 public class Task4 {
-    private static final Random RANDOM = new Random();
+    // Interval between periodic metrics summaries
+    private static final long METRICS_PERIOD_MILLIS = 1000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_BATCH_SIZE = 8;
 
     public static void main(String[] args) {
+        // "simulate <args...>" runs the same scenario as a discrete-event simulation
+        boolean simulate = args.length > 0 && args[0].equalsIgnoreCase("simulate");
+        if (simulate) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+
         // Default configuration parameters
         int totalTasks = 50; // Default task count
         double failureProbability = 0.8; // Default failure probability (80%)
         int numThreads = 4; // Default number of worker threads
         int maxRetries = 1; // Default retry count
+        long initialBackoff = 50; // Default delay before the first retry (ms)
+        long seed = new Random().nextLong(); // Failure schedule seed; pass one to replay a run
 
         if (args.length >= 3) {
             try {
                 totalTasks = Integer.parseInt(args[0]);
                 failureProbability = Double.parseDouble(args[1]);
                 numThreads = Integer.parseInt(args[2]);
-                if (args.length == 4) {
+                if (args.length >= 4) {
                     maxRetries = Integer.parseInt(args[3]);
                 }
+                if (args.length >= 5) {
+                    initialBackoff = Long.parseLong(args[4]);
+                }
+                if (args.length >= 6) {
+                    seed = Long.parseLong(args[5]);
+                }
                 if (failureProbability < 0.0 || failureProbability > 1.0) {
                     throw new IllegalArgumentException("Failure probability must be between 0 and 1.");
                 }
-                if (numThreads <= 0 || maxRetries < 0) {
-                    throw new IllegalArgumentException("Number of threads and max retries must be positive.");
+                if (numThreads <= 0 || maxRetries < 0 || initialBackoff < 0) {
+                    throw new IllegalArgumentException("Number of threads, max retries and backoff must be positive.");
                 }
             } catch (Exception e) {
                 System.err.println("Invalid arguments. Using default values.");
             }
         }
 
+        // Extra failure models (bursts, per-class rates, latency spikes) come from -Dsharpedges.failures
+        FailureInjector failureInjector;
+        try {
+            failureInjector = FailureInjector.fromSpec(System.getProperty("sharpedges.failures"), seed,
+                    failureProbability);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid failure model (" + e.getMessage() + "). Using Bernoulli failures.");
+            failureInjector = FailureInjector.bernoulli(seed, failureProbability);
+        }
+
+        // Queue bound and what to do when it is full come from -Dsharpedges.queue.capacity/.policy
+        int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        RejectionPolicy rejectionPolicy = RejectionPolicy.BLOCK;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        try {
+            queueCapacity = Integer.parseInt(System.getProperty("sharpedges.queue.capacity",
+                    String.valueOf(DEFAULT_QUEUE_CAPACITY)));
+            rejectionPolicy = RejectionPolicy.parse(System.getProperty("sharpedges.queue.policy", "block"));
+            // Tasks submitted, and taken by a worker, per queue lock acquisition
+            batchSize = Integer.parseInt(System.getProperty("sharpedges.queue.batch",
+                    String.valueOf(DEFAULT_BATCH_SIZE)));
+            if (queueCapacity <= 0 || batchSize <= 0) {
+                throw new IllegalArgumentException("Queue capacity and batch size must be positive.");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid queue settings. Using a blocking queue of " + DEFAULT_QUEUE_CAPACITY + ".");
+            queueCapacity = DEFAULT_QUEUE_CAPACITY;
+            rejectionPolicy = RejectionPolicy.BLOCK;
+            batchSize = DEFAULT_BATCH_SIZE;
+        }
+
         // Print configuration details
         System.out.printf("Task 4: Testing & Failure Simulation\n");
         System.out.printf("Failure Probability: %.2f%%\n", failureProbability * 100);
         System.out.printf("Number of Worker Threads: %d\n", numThreads);
-        System.out.printf("Max Retries: %d\n\n", maxRetries);
+        System.out.printf("Max Retries: %d\n", maxRetries);
+        System.out.printf("Initial Retry Backoff: %d ms\n", initialBackoff);
+        System.out.printf("Failure Model: %s\n", failureInjector);
+        System.out.printf("Failure Seed: %d\n", seed);
+
+        // Failed tasks back off exponentially (x2 per retry, up to 2 s) with 50% jitter
+        RetryPolicy retryPolicy = RetryPolicy.exponentialBackoff(maxRetries, initialBackoff, 2.0,
+                Math.max(initialBackoff, 2000), 0.5);
+
+        if (simulate) {
+            runSimulation(totalTasks, numThreads, failureInjector, retryPolicy);
+            return;
+        }
+        System.out.printf("Queue Capacity: %d (%s when full), batches of %d\n\n", queueCapacity, rejectionPolicy,
+                batchSize);
 
         // Shared resources for task processing
-        TaskQueue taskQueue = new TaskQueue();
+        RetryScheduler retryScheduler = new RetryScheduler();
+        TaskQueue taskQueue = new TaskQueue(retryScheduler, queueCapacity, rejectionPolicy);
         AtomicInteger successCount = new AtomicInteger(0);
         AtomicInteger failCount = new AtomicInteger(0);
+        int rejectedCount = 0;
         Thread[] threads = new Thread[numThreads];
+        PoolMetrics metrics = new PoolMetrics(numThreads);
+        metrics.startReporter(taskQueue::size, METRICS_PERIOD_MILLIS, System.out);
 
         // Initialize and start worker threads
         for (int i = 0; i < threads.length; i++) {
-            threads[i] = new Thread(new Worker(taskQueue, successCount, failCount, failureProbability, maxRetries),
-                    "Thread-" + i);
+            threads[i] = new Thread(new Worker(taskQueue, successCount, failCount, failureInjector,
+                    metrics.worker(i), batchSize), "Thread-" + i);
+            EventLog.registerThread(threads[i]);
             threads[i].start();
-            System.out.printf("[%s] Thread %s started.\n", getCurrentTime(), threads[i].getName());
         }
 
-        // Submit tasks to the queue
+        // With CALLER_RUNS the main thread processes tasks the full queue turns away; its
+        // timings are kept apart from the pool's, which only count the worker threads
+        Worker caller = new Worker(taskQueue, successCount, failCount, failureInjector, new PoolMetrics.Worker(),
+                1);
+
+        // Submit tasks to the queue, batchSize at a time
+        EventLog.registerThread(Thread.currentThread());
+        List<Task> batch = new ArrayList<>(batchSize);
         for (int i = 1; i <= totalTasks; i++) {
-            taskQueue.addTask(new Task(i));
-            System.out.printf("[%s] Task %d submitted.\n", getCurrentTime(), i);
+            batch.add(new Task(i, i % failureInjector.taskClasses(), retryPolicy));
+            if (batch.size() < batchSize && i < totalTasks) {
+                continue;
+            }
+            List<Task> refused = taskQueue.submitAll(batch); // Always the tail of the batch
+            for (int k = 0; k < batch.size() - refused.size(); k++) {
+                EventLog.record(EventLog.EventType.TASK_SUBMITTED, batch.get(k).getId());
+            }
+            for (Task task : refused) {
+                if (rejectionPolicy == RejectionPolicy.CALLER_RUNS) {
+                    metrics.taskRanInCaller();
+                    caller.processTask(task);
+                } else {
+                    rejectedCount++;
+                    metrics.taskRejected();
+                    EventLog.record(EventLog.EventType.TASK_REJECTED, task.getId());
+                }
+            }
+            batch.clear();
         }
 
         // Shutdown task queue after task submission
-        System.out.printf("[%s] Shutting down thread pool.\n", getCurrentTime());
+        EventLog.record(EventLog.EventType.SHUTDOWN_REQUESTED, -1);
         taskQueue.shutdown();
 
         // Wait for all threads to complete
         for (Thread thread : threads) {
             try {
                 thread.join();
-                System.out.printf("[%s] %s has finished.\n", getCurrentTime(), thread.getName());
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }
+        retryScheduler.shutdown();
+        metrics.stop();
+        EventLog.flush(); // Print every worker event before the summary
 
         // Print final execution summary
+        boolean mayLoseTasks = rejectionPolicy == RejectionPolicy.DROP_OLDEST
+                || rejectionPolicy == RejectionPolicy.REJECT;
+        printSummary(totalTasks, successCount.get(), failCount.get(), taskQueue.droppedCount(), rejectedCount,
+                mayLoseTasks);
+        System.out.println();
+        System.out.println(metrics.snapshot().summary());
+    }
+
+    // Simulated run on a virtual clock; network latency, service time and arrival rate
+    // (tasks/s, 0 = all at once) come from -Dsharpedges.sim.latency/.service/.rate
+    private static void runSimulation(int totalTasks, int numWorkers, FailureInjector failureInjector,
+            RetryPolicy retryPolicy) {
+        double latency = Double.parseDouble(System.getProperty("sharpedges.sim.latency", "200"));
+        double service = Double.parseDouble(System.getProperty("sharpedges.sim.service", "1"));
+        double rate = Double.parseDouble(System.getProperty("sharpedges.sim.rate", "0"));
+        System.out.printf("Simulated: %.1f ms mean latency, %.1f ms mean service time, %s\n", latency, service,
+                rate == 0 ? "all tasks submitted at once" : String.format("%.1f tasks/s", rate));
+
+        long start = System.nanoTime();
+        NetworkSimulation.Result result = new NetworkSimulation(numWorkers, latency, service, rate, failureInjector,
+                retryPolicy).run(totalTasks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        printSummary(totalTasks, result.succeeded(), result.failed(), 0, 0, false);
+        System.out.println();
+        System.out.println(result.summary());
+        System.out.printf("Simulated in %.2f s of real time.\n", seconds);
+    }
+
+    private static void printSummary(int totalTasks, int succeeded, int failed, int dropped, int rejected,
+            boolean showLost) {
         System.out.printf("\nExecution Summary:\n");
         System.out.printf("Total tasks: %d\n", totalTasks);
-        System.out.printf("Successfully processed: %d\n", successCount.get());
-        System.out.printf("Failed: %d\n", failCount.get());
+        System.out.printf("Successfully processed: %d\n", succeeded);
+        System.out.printf("Failed: %d\n", failed);
+        if (showLost) {
+            System.out.printf("Dropped: %d\n", dropped);
+            System.out.printf("Rejected: %d\n", rejected);
+        }
         System.out.printf("Validation %s: All tasks accounted for.\n",
-                (successCount.get() + failCount.get() == totalTasks) ? "Passed" : "Failed");
+                (succeeded + failed + dropped + rejected == totalTasks) ? "Passed" : "Failed");
     }
 
-    // Helper method to get the current time for log timestamps
-    private static String getCurrentTime() {
-        return java.time.LocalTime.now().toString();
-    }
-
-    // Task class representing individual tasks with unique IDs
+    // Task class representing individual tasks with unique IDs, a class that may
+    // select its failure rate, and their own retry policy
     static class Task {
         private final int id;
+        private final int taskClass;
+        private final RetryPolicy retryPolicy;
+        // Failed attempts so far and when the task last entered the queue; only the
+        // queue and the worker currently holding the task touch these
+        private int failures;
+        private long enqueuedAt;
 
         public Task(int id) {
+            this(id, 0, RetryPolicy.immediate(1));
+        }
+
+        public Task(int id, int taskClass, RetryPolicy retryPolicy) {
             this.id = id;
+            this.taskClass = taskClass;
+            this.retryPolicy = retryPolicy;
         }
 
         public int getId() {
             return id;
         }
+
+        public int getTaskClass() {
+            return taskClass;
+        }
+
+        // 1 for the first try, 2 for the first retry, ...
+        public int nextAttempt() {
+            return failures + 1;
+        }
+
+        public RetryPolicy getRetryPolicy() {
+            return retryPolicy;
+        }
+
+        // Record a failed attempt and return the number of failures so far
+        int recordFailure() {
+            return ++failures;
+        }
     }
 
-    // TaskQueue class for managing task submission and retrieval
+    // TaskQueue class for managing task submission and retrieval.
+    // New tasks are bounded by capacity, with rejectionPolicy deciding what happens
+    // when the queue is full. Failed tasks wait in the retry scheduler rather than on
+    // a worker, and re-enter the queue once their backoff has passed. Since they were
+    // already accepted, retries bypass the bound and are never blocked or rejected, so
+    // the queue can briefly hold more than capacity tasks. Once queued, though, a retry
+    // is like any other task: DROP_OLDEST may evict it when it reaches the head.
     static class TaskQueue {
-        private final java.util.Queue<Task> queue = new java.util.LinkedList<>();
+        private final java.util.ArrayDeque<Task> queue = new java.util.ArrayDeque<>();
+        private final RetryScheduler retryScheduler;
+        private final int capacity;
+        private final RejectionPolicy rejectionPolicy;
         private boolean running = true;
+        private int retriesPending; // Tasks waiting out a backoff in the scheduler
+        private int dropped;
+
+        // Without a scheduler, failed tasks are re-queued straight away
+        public TaskQueue() {
+            this(null);
+        }
+
+        public TaskQueue(RetryScheduler retryScheduler) {
+            this(retryScheduler, Integer.MAX_VALUE, RejectionPolicy.BLOCK);
+        }
+
+        public TaskQueue(RetryScheduler retryScheduler, int capacity, RejectionPolicy rejectionPolicy) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Queue capacity must be positive.");
+            }
+            this.retryScheduler = retryScheduler;
+            this.capacity = capacity;
+            this.rejectionPolicy = rejectionPolicy;
+        }
 
-        // Add a new task to the queue and notify waiting threads
-        public synchronized void addTask(Task task) {
+        // Add a new task to the queue and notify waiting threads. If the queue is full,
+        // BLOCK waits for space, DROP_OLDEST discards the oldest queued task, REJECT
+        // throws RejectedExecutionException and CALLER_RUNS returns false, leaving the
+        // task to the caller.
+        public synchronized boolean addTask(Task task) {
+            while (queue.size() >= capacity) {
+                switch (rejectionPolicy) {
+                    case BLOCK:
+                        try {
+                            wait(); // Until a worker takes a task
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Interrupted while waiting for queue space", e);
+                        }
+                        break;
+                    case CALLER_RUNS:
+                        return false;
+                    case DROP_OLDEST:
+                        Task oldest = queue.poll();
+                        dropped++;
+                        EventLog.record(EventLog.EventType.TASK_DROPPED, oldest.getId());
+                        break;
+                    default:
+                        throw new RejectedExecutionException("Task queue is full");
+                }
+            }
+            task.enqueuedAt = System.nanoTime();
             queue.add(task);
             notifyAll(); // Notify waiting threads
+            return true;
+        }
+
+        // Add several tasks under one lock acquisition and wake the workers once.
+        // The policy applies task by task as the queue fills, except that CALLER_RUNS and
+        // REJECT return the tasks that did not fit (always a tail of tasks, in order)
+        // instead of handling them.
+        public synchronized List<Task> submitAll(Collection<Task> tasks) {
+            List<Task> refused = new ArrayList<>(0);
+            long now = System.nanoTime();
+            for (Task task : tasks) {
+                if (!refused.isEmpty()) {
+                    refused.add(task); // Keep submission order: nothing jumps a refused task
+                    continue;
+                }
+                while (queue.size() >= capacity && rejectionPolicy != RejectionPolicy.CALLER_RUNS
+                        && rejectionPolicy != RejectionPolicy.REJECT) {
+                    if (rejectionPolicy == RejectionPolicy.BLOCK) {
+                        notifyAll(); // Let workers start on what has been added so far
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Interrupted while waiting for queue space", e);
+                        }
+                    } else {
+                        Task oldest = queue.poll();
+                        dropped++;
+                        EventLog.record(EventLog.EventType.TASK_DROPPED, oldest.getId());
+                    }
+                }
+                if (queue.size() >= capacity) {
+                    refused.add(task);
+                    continue;
+                }
+                task.enqueuedAt = now;
+                queue.add(task);
+            }
+            notifyAll();
+            return refused;
+        }
+
+        // Tasks discarded by DROP_OLDEST so far
+        public synchronized int droppedCount() {
+            return dropped;
+        }
+
+        // Put task back into the queue after delayMillis, without holding up the caller.
+        // A retry was already admitted once, so it bypasses the bound and the policy.
+        public void retryLater(Task task, long delayMillis) {
+            if (retryScheduler == null) {
+                requeue(task);
+                return;
+            }
+            synchronized (this) {
+                retriesPending++;
+            }
+            retryScheduler.schedule(() -> {
+                synchronized (this) {
+                    retriesPending--;
+                    requeue(task);
+                }
+            }, delayMillis);
+        }
+
+        private synchronized void requeue(Task task) {
+            task.enqueuedAt = System.nanoTime();
+            queue.add(task);
+            notifyAll();
         }
 
-        // Retrieve a task from the queue; blocks if the queue is empty
+        // Retrieve a task from the queue; blocks if the queue is empty. After shutdown
+        // it still waits while retries are pending, since those tasks will come back.
         public synchronized Task getTask() {
-            while (queue.isEmpty() && running) {
+            awaitTasks();
+            if (queue.size() >= capacity) {
+                notifyAll(); // A producer may be blocked on the full queue
+            }
+            return queue.poll();
+        }
+
+        // Tasks waiting to be picked up, excluding retries still backing off
+        public synchronized int size() {
+            return queue.size();
+        }
+
+        // Move up to maxTasks tasks into target under one lock acquisition, waiting like
+        // getTask while the queue is empty; returns 0 once the queue is shut down and drained
+        public synchronized int drainTo(Collection<? super Task> target, int maxTasks) {
+            awaitTasks();
+            if (queue.size() >= capacity) {
+                notifyAll(); // A producer may be blocked on the full queue
+            }
+            int drained = 0;
+            while (drained < maxTasks && !queue.isEmpty()) {
+                target.add(queue.poll());
+                drained++;
+            }
+            return drained;
+        }
+
+        // Wait while the queue is empty and tasks may still arrive. An interrupt does not
+        // end the wait; it is restored afterwards, since waiting with the flag set would
+        // throw at once and spin.
+        private void awaitTasks() {
+            boolean interrupted = false;
+            while (queue.isEmpty() && (running || retriesPending > 0)) {
                 try {
                     wait(); // Block until a task is available
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    interrupted = true;
                 }
             }
-            return queue.poll();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
 
         // Gracefully shut down the task queue
@@ -133,47 +449,66 @@ public class Task4 {
         private final TaskQueue taskQueue;
         private final AtomicInteger successCount;
         private final AtomicInteger failCount;
-        private final double failureProbability;
-        private final int maxRetries;
+        private final FailureInjector failureInjector;
+        private final PoolMetrics.Worker metrics;
+        private final int batchSize;
 
         public Worker(TaskQueue taskQueue, AtomicInteger successCount, AtomicInteger failCount,
-                double failureProbability, int maxRetries) {
+                FailureInjector failureInjector, PoolMetrics.Worker metrics, int batchSize) {
             this.taskQueue = taskQueue;
             this.successCount = successCount;
             this.failCount = failCount;
-            this.failureProbability = failureProbability;
-            this.maxRetries = maxRetries;
+            this.failureInjector = failureInjector;
+            this.metrics = metrics;
+            this.batchSize = batchSize;
         }
 
         @Override
         public void run() {
-            while (true) {
-                Task task = taskQueue.getTask();
-                if (task == null) {
-                    break;
+            EventLog.record(EventLog.EventType.WORKER_STARTED, -1);
+            // Take up to batchSize tasks per lock acquisition
+            List<Task> batch = new ArrayList<>(batchSize);
+            while (taskQueue.drainTo(batch, batchSize) > 0) {
+                for (Task task : batch) {
+                    long start = System.nanoTime();
+                    long queueWait = start - task.enqueuedAt;
+                    processTask(task);
+                    metrics.taskRan(queueWait, System.nanoTime() - start);
                 }
-                processTask(task);
+                batch.clear();
             }
+            EventLog.record(EventLog.EventType.WORKER_STOPPED, -1);
         }
 
-        // Process a single task with retry logic
-        private void processTask(Task task) {
-            int retries = 0;
-            while (retries <= maxRetries) {
-                if (RANDOM.nextDouble() < failureProbability) {
-                    retries++;
-                    System.out.printf("[%s] %s failed to execute Task ID: %d (Attempt %d).\n",
-                            getCurrentTime(), Thread.currentThread().getName(), task.getId(), retries);
-                    if (retries > maxRetries) {
-                        failCount.incrementAndGet();
-                        return;
-                    }
-                } else {
-                    System.out.printf("[%s] %s successfully processed Task ID: %d.\n",
-                            getCurrentTime(), Thread.currentThread().getName(), task.getId());
-                    successCount.incrementAndGet();
+        // Make one attempt at a task; on failure hand it to the retry scheduler (or
+        // give up once its policy is exhausted) and move on to the next task
+        void processTask(Task task) {
+            int attempt = task.nextAttempt();
+            long latency = failureInjector.latencyMillis(task.getId(), attempt);
+            if (latency > 0) {
+                try {
+                    Thread.sleep(latency); // Simulated latency spike
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failureInjector.shouldFail(task.getId(), task.getTaskClass(), attempt)) {
+                int failures = task.recordFailure();
+                EventLog.record(EventLog.EventType.TASK_FAILED, task.getId(), failures);
+                RetryPolicy policy = task.getRetryPolicy();
+                if (failures > policy.maxRetries()) {
+                    failCount.incrementAndGet();
+                    metrics.taskFailed();
                     return;
                 }
+                long delay = policy.delayMillis(failures);
+                EventLog.record(EventLog.EventType.TASK_RETRY_SCHEDULED, task.getId(), (int) delay);
+                metrics.retryScheduled();
+                taskQueue.retryLater(task, delay);
+            } else {
+                EventLog.record(EventLog.EventType.TASK_COMPLETED, task.getId());
+                successCount.incrementAndGet();
+                metrics.taskCompleted();
             }
         }
     }
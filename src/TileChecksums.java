@@ -0,0 +1,196 @@
+package src;
+
+import java.awt.Rectangle;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+
+// Per-tile CRC32 digests of an image, for validating filter output without
+// recomputing it. Digests are computed tile by tile on the engine's pool, so hashing a
+// 100M-pixel result takes a small fraction of the filter time; comparing two sets of
+// digests names the tiles that differ. Digests can be saved as reference values and
+// loaded by later runs. spotCheck complements them when no reference exists: it
+// recomputes a random sample of tiles with the serial Task 1 gold standard.
+public final class TileChecksums {
+    // Identifies a reference digest file
+    private static final int MAGIC = 0x53454447; // "SEDG"
+
+    private final int width;
+    private final int height;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final long[] digests;
+
+    private TileChecksums(int width, int height, int tileWidth, int tileHeight, long[] digests) {
+        this.width = width;
+        this.height = height;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.digests = digests;
+    }
+
+    // Digest every tile of image, using the engine's tile size and pool
+    public static TileChecksums compute(GrayImage image, TiledConvolutionEngine engine) {
+        int tileWidth = engine.tileWidth();
+        int tileHeight = engine.tileHeight();
+        int tilesX = (image.width() + tileWidth - 1) / tileWidth;
+        int tilesY = (image.height() + tileHeight - 1) / tileHeight;
+        long[] digests = new long[tilesX * tilesY];
+        engine.forEach(digests.length, tile -> {
+            int x0 = (tile % tilesX) * tileWidth;
+            int y0 = (tile / tilesX) * tileHeight;
+            int x1 = Math.min(x0 + tileWidth, image.width());
+            int y1 = Math.min(y0 + tileHeight, image.height());
+            CRC32 crc = new CRC32();
+            for (int y = y0; y < y1; y++) {
+                crc.update(image.pixels(), image.rowOffset(y) + x0, x1 - x0);
+            }
+            digests[tile] = crc.getValue();
+        });
+        return new TileChecksums(image.width(), image.height(), tileWidth, tileHeight, digests);
+    }
+
+    public int tiles() {
+        return digests.length;
+    }
+
+    public long digest(int tile) {
+        return digests[tile];
+    }
+
+    public Rectangle tileBounds(int tile) {
+        int tilesX = (width + tileWidth - 1) / tileWidth;
+        return new Rectangle((tile % tilesX) * tileWidth, (tile / tilesX) * tileHeight, tileWidth, tileHeight)
+                .intersection(new Rectangle(0, 0, width, height));
+    }
+
+    // Tiles whose digest differs from reference; empty when the images match
+    public List<Rectangle> mismatches(TileChecksums reference) {
+        if (width != reference.width || height != reference.height || tileWidth != reference.tileWidth
+                || tileHeight != reference.tileHeight) {
+            throw new IllegalArgumentException("Digests cover different image or tile sizes.");
+        }
+        List<Rectangle> mismatches = new ArrayList<>();
+        for (int tile = 0; tile < digests.length; tile++) {
+            if (digests[tile] != reference.digests[tile]) {
+                mismatches.add(tileBounds(tile));
+            }
+        }
+        return mismatches;
+    }
+
+    // Recompute a random sample of tiles from source with the serial gold standard and
+    // compare them with result. sampleFraction of the tiles (at least one) are checked
+    // in parallel; the sample depends only on seed. Returns the tiles that differ.
+    public static List<Rectangle> spotCheck(GrayImage source, int[][] kernel, GrayImage result,
+            TiledConvolutionEngine engine, double sampleFraction, long seed) {
+        if (!source.sameSize(result)) {
+            throw new IllegalArgumentException("Source and result images must have the same size.");
+        }
+        if (sampleFraction <= 0.0 || sampleFraction > 1.0) {
+            throw new IllegalArgumentException("Sample fraction must be in (0, 1].");
+        }
+        int tileWidth = engine.tileWidth();
+        int tileHeight = engine.tileHeight();
+        int tilesX = (source.width() + tileWidth - 1) / tileWidth;
+        int tiles = tilesX * ((source.height() + tileHeight - 1) / tileHeight);
+
+        // Partial Fisher-Yates shuffle: the first samples entries are a uniform sample
+        int samples = Math.max(1, (int) Math.ceil(sampleFraction * tiles));
+        int[] order = new int[tiles];
+        for (int i = 0; i < tiles; i++) {
+            order[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < samples; i++) {
+            int j = i + random.nextInt(tiles - i);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        List<Rectangle> mismatches = Collections.synchronizedList(new ArrayList<>());
+        engine.forEach(samples, i -> {
+            int tile = order[i];
+            int x0 = (tile % tilesX) * tileWidth;
+            int y0 = (tile / tilesX) * tileHeight;
+            int x1 = Math.min(x0 + tileWidth, source.width());
+            int y1 = Math.min(y0 + tileHeight, source.height());
+            // A view of the tile plus its one-pixel halo; at the image edge there is no
+            // halo and the gold standard leaves the border black, as the engine does
+            int wx0 = Math.max(x0 - 1, 0);
+            int wy0 = Math.max(y0 - 1, 0);
+            int wx1 = Math.min(x1 + 1, source.width());
+            int wy1 = Math.min(y1 + 1, source.height());
+            GrayImage window = new GrayImage(source.pixels(), source.rowOffset(wy0) + wx0, wx1 - wx0, wy1 - wy0,
+                    source.stride());
+            // Task1's scalar row loop, independent of the Convolution backend under test
+            GrayImage expected = new GrayImage(window.width(), window.height());
+            Task1.applyKernel(window, kernel, expected, 0, window.height());
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    if (expected.get(x - wx0, y - wy0) != result.get(x, y)) {
+                        mismatches.add(new Rectangle(x0, y0, x1 - x0, y1 - y0));
+                        return;
+                    }
+                }
+            }
+        });
+        return new ArrayList<>(mismatches);
+    }
+
+    // Save digests, e.g. one per kernel output, tagged with key (such as the seed)
+    public static void save(Path file, long key, List<TileChecksums> checksums) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(key);
+            out.writeInt(checksums.size());
+            for (TileChecksums checksum : checksums) {
+                out.writeInt(checksum.width);
+                out.writeInt(checksum.height);
+                out.writeInt(checksum.tileWidth);
+                out.writeInt(checksum.tileHeight);
+                out.writeInt(checksum.digests.length);
+                for (long digest : checksum.digests) {
+                    out.writeInt((int) digest);
+                }
+            }
+        }
+    }
+
+    // Load digests saved with save; fails if the file was saved under a different key
+    public static List<TileChecksums> load(Path file, long key) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a tile digest file");
+            }
+            long savedKey = in.readLong();
+            if (savedKey != key) {
+                throw new IOException(file + " holds digests for " + savedKey + ", not " + key);
+            }
+            int count = in.readInt();
+            List<TileChecksums> checksums = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int width = in.readInt();
+                int height = in.readInt();
+                int tileWidth = in.readInt();
+                int tileHeight = in.readInt();
+                long[] digests = new long[in.readInt()];
+                for (int tile = 0; tile < digests.length; tile++) {
+                    digests[tile] = in.readInt() & 0xFFFFFFFFL;
+                }
+                checksums.add(new TileChecksums(width, height, tileWidth, tileHeight, digests));
+            }
+            return checksums;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package src;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// Work-stealing convolution engine.
+// The image is cut into 2-D tiles small enough to stay resident in a core's L2
+// cache, and the tiles are processed on a persistent ForkJoinPool: the tile range
+// is split recursively, so an idle worker steals half of a busy worker's
+// remaining tiles instead of waiting for a statically assigned chunk to finish.
+public class TiledConvolutionEngine {
+    // A 256 x 256 source tile plus its destination tile is ~128 KB,
+    // half of a typical 256 KB L2, leaving room for the halo rows
+    public static final int DEFAULT_TILE_SIZE = 256;
+    // Pixels around a changed pixel whose output changes: one for a 3x3 kernel
+    private static final int KERNEL_RADIUS = 1;
+
+    // One engine (and pool) per parallelism level, reused across calls
+    private static final ConcurrentHashMap<Integer, TiledConvolutionEngine> ENGINES = new ConcurrentHashMap<>();
+
+    private final ForkJoinPool pool;
+    private final int tileWidth;
+    private final int tileHeight;
+
+    public TiledConvolutionEngine(int parallelism) {
+        this(parallelism, DEFAULT_TILE_SIZE, DEFAULT_TILE_SIZE);
+    }
+
+    public TiledConvolutionEngine(int parallelism, int tileWidth, int tileHeight) {
+        if (parallelism <= 0 || tileWidth <= 0 || tileHeight <= 0) {
+            throw new IllegalArgumentException("Parallelism and tile dimensions must be positive.");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+    }
+
+    // Shared engine for the given parallelism; its pool threads are daemons
+    public static TiledConvolutionEngine forParallelism(int parallelism) {
+        return ENGINES.computeIfAbsent(parallelism, TiledConvolutionEngine::new);
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    int tileWidth() {
+        return tileWidth;
+    }
+
+    int tileHeight() {
+        return tileHeight;
+    }
+
+    // The persistent pool, shared with other data-parallel stages such as generation
+    ForkJoinPool pool() {
+        return pool;
+    }
+
+    // Apply a 3x3 kernel to the whole image and return a new result image
+    public GrayImage apply(GrayImage source, int[][] kernel) {
+        GrayImage result = new GrayImage(source.width(), source.height());
+        apply(source, kernel, result);
+        return result;
+    }
+
+    // Apply a 3x3 kernel to the whole image, writing into an existing result image
+    public void apply(GrayImage source, int[][] kernel, GrayImage result) {
+        applyAll(source, new int[][][] { kernel }, new GrayImage[] { result });
+    }
+
+    // Apply several 3x3 kernels in a single fused pass, one result image per kernel
+    public List<GrayImage> applyAll(GrayImage source, List<int[][]> kernels) {
+        GrayImage[] results = new GrayImage[kernels.size()];
+        for (int k = 0; k < results.length; k++) {
+            results[k] = new GrayImage(source.width(), source.height());
+        }
+        applyAll(source, kernels.toArray(new int[0][][]), results);
+        return Arrays.asList(results);
+    }
+
+    // Fused pass writing kernels[k] into results[k]; each neighbourhood is read once
+    public void applyAll(GrayImage source, int[][][] kernels, GrayImage[] results) {
+        checkResults(source, kernels, results);
+        int tilesX = (source.width() + tileWidth - 1) / tileWidth;
+        int tilesY = (source.height() + tileHeight - 1) / tileHeight;
+        pool.invoke(new TileTask(source, kernels, results, tilesX, 0, tilesX * tilesY));
+    }
+
+    // Apply a kernel of any size, reading outside pixels through border
+    public GrayImage apply(GrayImage source, Kernel kernel, BorderMode border) {
+        GrayImage result = new GrayImage(source.width(), source.height());
+        apply(source, kernel, border, result);
+        return result;
+    }
+
+    // As above, writing every pixel of an existing result image
+    public void apply(GrayImage source, Kernel kernel, BorderMode border, GrayImage result) {
+        if (!source.sameSize(result)) {
+            throw new IllegalArgumentException("Source and result images must have the same size.");
+        }
+        int tilesX = (source.width() + tileWidth - 1) / tileWidth;
+        int tilesY = (source.height() + tileHeight - 1) / tileHeight;
+        forEach(tilesX * tilesY, tile -> {
+            int x0 = (tile % tilesX) * tileWidth;
+            int y0 = (tile / tilesX) * tileHeight;
+            KernelConvolution.convolve(source, kernel, border, result, x0, y0, x0 + tileWidth, y0 + tileHeight);
+        });
+    }
+
+    // Bring result up to date after the pixels of source inside the dirty rectangles
+    // changed. result must hold kernel's output for the previous source. Only the dirty
+    // rectangles grown by the kernel radius are recomputed, so the cost follows the
+    // changed area rather than the image size.
+    public void update(GrayImage source, int[][] kernel, GrayImage result, Collection<Rectangle> dirty) {
+        updateAll(source, new int[][][] { kernel }, new GrayImage[] { result }, dirty);
+    }
+
+    // Fused variant of update, results[k] holding the previous output of kernels[k]
+    public void updateAll(GrayImage source, int[][][] kernels, GrayImage[] results, Collection<Rectangle> dirty) {
+        checkResults(source, kernels, results);
+        List<Rectangle> regions = dirtyRegions(source.width(), source.height(), dirty);
+        if (!regions.isEmpty()) {
+            pool.invoke(new RegionTask(source, kernels, results, regions, 0, regions.size()));
+        }
+    }
+
+    // Run action(i) for i in [0, count) on the pool, e.g. once per tile for
+    // work other than convolution such as checksums
+    void forEach(int count, IntConsumer action) {
+        if (count > 0) {
+            pool.invoke(new IndexTask(action, 0, count));
+        }
+    }
+
+    // The grown dirty rectangles clipped to the image and cut at tile boundaries, one
+    // bounding box per touched tile, so overlapping rectangles are computed once and
+    // a large region still spreads over the pool
+    List<Rectangle> dirtyRegions(int width, int height, Collection<Rectangle> dirty) {
+        Rectangle bounds = new Rectangle(0, 0, width, height);
+        int tilesX = (width + tileWidth - 1) / tileWidth;
+        Map<Integer, Rectangle> byTile = new HashMap<>();
+        for (Rectangle rectangle : dirty) {
+            if (rectangle.isEmpty()) {
+                continue;
+            }
+            Rectangle grown = new Rectangle(rectangle);
+            grown.grow(KERNEL_RADIUS, KERNEL_RADIUS);
+            grown = grown.intersection(bounds);
+            if (grown.isEmpty()) {
+                continue;
+            }
+            for (int ty = grown.y / tileHeight; ty <= (grown.y + grown.height - 1) / tileHeight; ty++) {
+                for (int tx = grown.x / tileWidth; tx <= (grown.x + grown.width - 1) / tileWidth; tx++) {
+                    Rectangle part = grown.intersection(
+                            new Rectangle(tx * tileWidth, ty * tileHeight, tileWidth, tileHeight));
+                    byTile.merge(ty * tilesX + tx, part, Rectangle::union);
+                }
+            }
+        }
+        return new ArrayList<>(byTile.values());
+    }
+
+    static void checkResults(GrayImage source, int[][][] kernels, GrayImage[] results) {
+        if (kernels.length == 0 || kernels.length != results.length) {
+            throw new IllegalArgumentException("Expected one result image per kernel.");
+        }
+        for (int k = 0; k < kernels.length; k++) {
+            Convolution.checkKernel(kernels[k]);
+            if (!source.sameSize(results[k])) {
+                throw new IllegalArgumentException("Source and result images must have the same size.");
+            }
+        }
+    }
+
+    // Recursively halves a range of tile indices until a single tile remains. Fork/join
+    // tasks are Serializable only by inheritance and are never serialized here.
+    @SuppressWarnings("serial")
+    private final class TileTask extends RecursiveAction {
+        private final GrayImage source;
+        private final int[][][] kernels;
+        private final GrayImage[] results;
+        private final int tilesX, from, to;
+
+        TileTask(GrayImage source, int[][][] kernels, GrayImage[] results, int tilesX, int from, int to) {
+            this.source = source;
+            this.kernels = kernels;
+            this.results = results;
+            this.tilesX = tilesX;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int x0 = (from % tilesX) * tileWidth;
+                int y0 = (from / tilesX) * tileHeight;
+                Convolution.convolveAll(source, kernels, results, x0, y0, x0 + tileWidth, y0 + tileHeight);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(source, kernels, results, tilesX, from, mid),
+                    new TileTask(source, kernels, results, tilesX, mid, to));
+        }
+    }
+
+    // Recursively halves a list of regions until a single region remains
+    @SuppressWarnings("serial")
+    private static final class RegionTask extends RecursiveAction {
+        private final GrayImage source;
+        private final int[][][] kernels;
+        private final GrayImage[] results;
+        private final List<Rectangle> regions;
+        private final int from, to;
+
+        RegionTask(GrayImage source, int[][][] kernels, GrayImage[] results, List<Rectangle> regions, int from,
+                int to) {
+            this.source = source;
+            this.kernels = kernels;
+            this.results = results;
+            this.regions = regions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                Rectangle region = regions.get(from);
+                Convolution.convolveAll(source, kernels, results, region.x, region.y, region.x + region.width,
+                        region.y + region.height);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RegionTask(source, kernels, results, regions, from, mid),
+                    new RegionTask(source, kernels, results, regions, mid, to));
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class IndexTask extends RecursiveAction {
+        private final IntConsumer action;
+        private final int from, to;
+
+        IndexTask(IntConsumer action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new IndexTask(action, from, mid), new IndexTask(action, mid, to));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package src;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Array-backed Chase-Lev work-stealing deque.
+// One owner thread pushes and pops at the bottom (LIFO, so related work stays in its
+// cache); any other thread steals from the top (FIFO, the oldest and usually largest
+// work). Push and pop touch only the owner's end and need a CAS only for the last
+// element; steals CAS the top index. The ring grows by doubling, on the owner's
+// thread, and nothing is allocated per element. Thieves cannot clear the slot they
+// took without racing the owner, so a stolen slot keeps its reference until the owner
+// overwrites it.
+final class WorkStealingDeque<E> {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private volatile AtomicReferenceArray<E> array = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private final AtomicLong top = new AtomicLong(); // Next index to steal
+    private volatile long bottom; // Next index to push; written only by the owner
+
+    // Owner only
+    void push(E element) {
+        long b = bottom;
+        AtomicReferenceArray<E> a = array;
+        if (b - top.get() >= a.length() - 1) {
+            a = grow(a, top.get(), b);
+        }
+        a.lazySet((int) b & (a.length() - 1), element);
+        bottom = b + 1; // Publishes the element to thieves
+    }
+
+    // Owner only: the most recently pushed element, or null if the deque is empty
+    E pop() {
+        long b = bottom - 1;
+        AtomicReferenceArray<E> a = array;
+        bottom = b; // The volatile write orders the top read below after it
+        long t = top.get();
+        if (t > b) {
+            bottom = b + 1; // Was empty
+            return null;
+        }
+        int index = (int) b & (a.length() - 1);
+        E element = a.get(index);
+        if (t == b) {
+            // Last element: a thief may be taking it too, and the top CAS decides
+            if (!top.compareAndSet(t, t + 1)) {
+                element = null;
+            }
+            bottom = b + 1;
+        }
+        if (element != null) {
+            a.lazySet(index, null);
+        }
+        return element;
+    }
+
+    // Any thread: the oldest element, or null if the deque is empty
+    E steal() {
+        while (true) {
+            long t = top.get();
+            long b = bottom;
+            if (t >= b) {
+                return null;
+            }
+            AtomicReferenceArray<E> a = array;
+            E element = a.get((int) t & (a.length() - 1));
+            if (top.compareAndSet(t, t + 1)) {
+                return element;
+            }
+            // Lost to the owner or another thief; look again
+        }
+    }
+
+    // Approximate, as seen from another thread
+    int size() {
+        long size = bottom - top.get();
+        return (int) Math.max(0, Math.min(size, Integer.MAX_VALUE));
+    }
+
+    boolean isEmpty() {
+        return bottom - top.get() <= 0;
+    }
+
+    // Copy the live elements [t, b) into a ring twice the size, at the same indices
+    private AtomicReferenceArray<E> grow(AtomicReferenceArray<E> old, long t, long b) {
+        AtomicReferenceArray<E> grown = new AtomicReferenceArray<>(old.length() * 2);
+        for (long i = t; i < b; i++) {
+            grown.lazySet((int) i & (grown.length() - 1), old.get((int) i & (old.length() - 1)));
+        }
+        array = grown;
+        return grown;
+    }
+}
@@ -0,0 +1,87 @@
+package src.vector;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import src.Convolution;
+import src.ConvolutionBackend;
+import src.GrayImage;
+
+// Vector API backend for the 3x3 convolution.
+// Each step loads a lane's worth of unsigned pixels from the three source rows,
+// widens them to ints, accumulates the nine weighted neighbours, clamps to 0-255
+// with lanewise max/min and narrows back to bytes, all in registers. Columns that
+// do not fill a whole vector are finished by Convolution.convolveScalar.
+//
+// Needs the incubator module at compile and run time:
+//   javac --add-modules jdk.incubator.vector src/*.java src/vector/*.java
+//   java --add-modules jdk.incubator.vector src.Task2
+public final class VectorConvolution implements ConvolutionBackend {
+    // Int lanes follow the preferred vector width: 8 (AVX2) or 16 (AVX-512), so one
+    // 64- or 128-bit load of pixels fills exactly one int vector
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED.length() >= 16
+            ? IntVector.SPECIES_512 : IntVector.SPECIES_256;
+    private static final VectorSpecies<Byte> BYTES = INTS.length() == 16 ? ByteVector.SPECIES_128
+            : ByteVector.SPECIES_64;
+    private static final int LANES = INTS.length();
+
+    public VectorConvolution() {
+        // With 128-bit vectors the widening leaves too few lanes to beat the scalar loop
+        if (IntVector.SPECIES_PREFERRED.length() < 8) {
+            throw new UnsupportedOperationException("Vector backend needs 256-bit or wider vectors.");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector (" + LANES + " lanes)";
+    }
+
+    @Override
+    public void convolve(GrayImage source, int[][] kernel, GrayImage result, int x0, int y0, int x1, int y1) {
+        int startRow = Math.max(y0, 1);
+        int endRow = Math.min(y1, source.height() - 1);
+        int startCol = Math.max(x0, 1);
+        int endCol = Math.min(x1, source.width() - 1);
+        // The right-hand neighbour load reads BYTES.length() pixels starting at j + 1
+        int lastVectorCol = Math.min(endCol - LANES, source.width() - 1 - BYTES.length());
+
+        byte[] in = source.pixels();
+        byte[] out = result.pixels();
+        int k00 = kernel[0][0], k01 = kernel[0][1], k02 = kernel[0][2];
+        int k10 = kernel[1][0], k11 = kernel[1][1], k12 = kernel[1][2];
+        int k20 = kernel[2][0], k21 = kernel[2][1], k22 = kernel[2][2];
+
+        for (int i = startRow; i < endRow; i++) {
+            int above = source.rowOffset(i - 1);
+            int center = source.rowOffset(i);
+            int below = source.rowOffset(i + 1);
+            int target = result.rowOffset(i);
+            int j = startCol;
+            for (; j <= lastVectorCol; j += LANES) {
+                IntVector sum = load(in, above + j - 1).mul(k00)
+                        .add(load(in, above + j).mul(k01))
+                        .add(load(in, above + j + 1).mul(k02))
+                        .add(load(in, center + j - 1).mul(k10))
+                        .add(load(in, center + j).mul(k11))
+                        .add(load(in, center + j + 1).mul(k12))
+                        .add(load(in, below + j - 1).mul(k20))
+                        .add(load(in, below + j).mul(k21))
+                        .add(load(in, below + j + 1).mul(k22));
+                ByteVector clamped = (ByteVector) sum.max(0).min(255)
+                        .convertShape(VectorOperators.I2B, BYTES, 0);
+                clamped.intoArray(out, target + j);
+            }
+            if (j < endCol) {
+                Convolution.convolveScalar(source, kernel, result, j, i, endCol, i + 1);
+            }
+        }
+    }
+
+    // Load LANES unsigned pixels starting at index as ints
+    private static IntVector load(byte[] pixels, int index) {
+        return ((IntVector) ByteVector.fromArray(BYTES, pixels, index)
+                .convertShape(VectorOperators.B2I, INTS, 0)).and(0xFF);
+    }
+}
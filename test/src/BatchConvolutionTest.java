@@ -0,0 +1,77 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class BatchConvolutionTest {
+    private static final List<int[][]> KERNELS = Arrays.asList(Task1.SHARPEN_KERNEL, Task1.EDGE_DETECTION_KERNEL);
+
+    // A low threshold, so the batch holds both whole-image and tiled jobs
+    private final TiledConvolutionEngine engine = new TiledConvolutionEngine(3, 32, 32);
+    private final BatchConvolution batch = new BatchConvolution(engine, 64 * 64);
+
+    @Test
+    void submitMatchesSingleImageOutput() throws Exception {
+        for (int[] size : new int[][] { { 1, 1 }, { 40, 30 }, { 64, 64 }, { 65, 64 }, { 200, 131 } }) {
+            GrayImage image = ImageGenerator.generate(size[1], size[0], size[0] + size[1], 1);
+            List<GrayImage> expected = engine.applyAll(image, KERNELS);
+            List<GrayImage> actual = batch.submit(image, KERNELS).get(30, TimeUnit.SECONDS);
+            for (int k = 0; k < KERNELS.size(); k++) {
+                assertTrue(expected.get(k).contentEquals(actual.get(k)), size[0] + "x" + size[1] + " kernel " + k);
+            }
+
+            GrayImage blurred = batch.submit(image, Kernel.binomial(5), BorderMode.REFLECT).get(30, TimeUnit.SECONDS);
+            assertTrue(engine.apply(image, Kernel.binomial(5), BorderMode.REFLECT).contentEquals(blurred));
+        }
+    }
+
+    @Test
+    void submitAllReportsEveryImageWithSingleImageOutput() throws Exception {
+        List<GrayImage> images = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            int side = i % 3 == 0 ? 150 : 20 + i;
+            images.add(ImageGenerator.generate(side, side + 3, i, 1));
+        }
+        ConcurrentHashMap<Integer, List<GrayImage>> reported = new ConcurrentHashMap<>();
+        batch.submitAll(images.iterator(), KERNELS, 4, (index, source, results, failure) -> {
+            assertNull(failure);
+            assertSame(images.get(index), source);
+            reported.put(index, results);
+        }).get(30, TimeUnit.SECONDS);
+
+        assertEquals(images.size(), reported.size());
+        for (int i = 0; i < images.size(); i++) {
+            List<GrayImage> expected = engine.applyAll(images.get(i), KERNELS);
+            for (int k = 0; k < KERNELS.size(); k++) {
+                assertTrue(expected.get(k).contentEquals(reported.get(i).get(k)), "image " + i + " kernel " + k);
+            }
+        }
+    }
+
+    // Small images run whole and large ones tiled; both must reject no kernels alike
+    @Test
+    void emptyKernelListIsRejectedForAnyImageSize() {
+        List<int[][]> none = Collections.emptyList();
+        GrayImage small = new GrayImage(8, 8);
+        GrayImage large = new GrayImage(100, 100);
+        assertTrue(batch.isSmall(small));
+        assertFalse(batch.isSmall(large));
+        assertThrows(IllegalArgumentException.class, () -> batch.submit(small, none));
+        assertThrows(IllegalArgumentException.class, () -> batch.submit(large, none));
+        assertThrows(IllegalArgumentException.class, () -> engine.applyAll(large, none));
+        assertThrows(IllegalArgumentException.class,
+                () -> batch.submitAll(Arrays.asList(small, large).iterator(), none, 2, (i, s, r, f) -> { }));
+    }
+}
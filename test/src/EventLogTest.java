@@ -0,0 +1,78 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class EventLogTest {
+    @AfterEach
+    void restoreOutput() {
+        EventLog.setOutput(System.out);
+        EventLog.setLevel(EventLog.Level.INFO);
+    }
+
+    // The output is slow to write, so flush must wait for the print itself and not
+    // only for the events to be taken from the ring buffer
+    @Test
+    void flushWaitsUntilEventsArePrinted() throws InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventLog.setOutput(new PrintStream(new SlowOutput(bytes), true));
+        EventLog.setLevel(EventLog.Level.DEBUG);
+        EventLog.flush();
+        bytes.reset();
+
+        int perThread = 500;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long base = t * perThread;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    EventLog.record(EventLog.EventType.TASK_COMPLETED, base + i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        EventLog.flush();
+        String text;
+        synchronized (bytes) {
+            text = bytes.toString();
+        }
+        assertEquals(4 * perThread, text.split(System.lineSeparator()).length);
+    }
+
+    private static final class SlowOutput extends OutputStream {
+        private final ByteArrayOutputStream target;
+
+        SlowOutput(ByteArrayOutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (target) {
+                target.write(b, off, len);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class FailureInjectorTest {
+    // Decisions depend only on (seed, task, attempt), not on the order they are asked in
+    @Test
+    void scheduleIsReproducibleInAnyOrder() {
+        FailureInjector forward = FailureInjector.fromSpec("burst=20:0.1:0.95,spike=0.05:200", 42, 0.2);
+        FailureInjector backward = FailureInjector.fromSpec("burst=20:0.1:0.95,spike=0.05:200", 42, 0.2);
+        boolean[] failed = new boolean[5000];
+        long[] latency = new long[5000];
+        for (int task = 0; task < failed.length; task++) {
+            failed[task] = forward.shouldFail(task, 0, 1);
+            latency[task] = forward.latencyMillis(task, 1);
+        }
+        for (int task = failed.length - 1; task >= 0; task--) {
+            assertEquals(failed[task], backward.shouldFail(task, 0, 1), "task " + task);
+            assertEquals(latency[task], backward.latencyMillis(task, 1), "task " + task);
+        }
+    }
+
+    @Test
+    void failureRateMatchesProbability() {
+        FailureInjector injector = FailureInjector.bernoulli(7, 0.3);
+        int failures = 0;
+        int trials = 100_000;
+        for (int task = 0; task < trials; task++) {
+            if (injector.shouldFail(task, 0, 1 + task % 3)) {
+                failures++;
+            }
+        }
+        assertEquals(0.3, failures / (double) trials, 0.01);
+    }
+
+    @Test
+    void perClassRatesApply() {
+        FailureInjector injector = FailureInjector.bernoulli(1, 0.5).withClassFailureProbabilities(0.0, 1.0);
+        for (int task = 0; task < 1000; task++) {
+            assertEquals(task % 2 == 1, injector.shouldFail(task, task % 2, 1));
+        }
+    }
+
+    @Test
+    void invalidSpecsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> FailureInjector.fromSpec("bogus:1", 1, 0.1));
+        assertThrows(IllegalArgumentException.class, () -> FailureInjector.fromSpec("burst=20:0.1", 1, 0.1));
+        assertThrows(IllegalArgumentException.class, () -> FailureInjector.fromSpec("spike=2.0:10", 1, 0.1));
+        assertTrue(FailureInjector.fromSpec("", 1, 0.1).toString().startsWith("Bernoulli"));
+    }
+}
@@ -0,0 +1,91 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FaultTolerantConvolutionTest {
+    private static final int[][][] KERNELS = { Task1.SHARPEN_KERNEL, Task1.EDGE_DETECTION_KERNEL };
+    private static final int WIDTH = 700;
+    private static final int HEIGHT = 500;
+
+    private final TiledConvolutionEngine engine = new TiledConvolutionEngine(4, 32, 32);
+    private final GrayImage source = ImageGenerator.generate(HEIGHT, WIDTH, 5, 1);
+    private final List<GrayImage> expected = engine.applyAll(source, Arrays.asList(KERNELS));
+
+    @Test
+    void retriesFailuresAndTimeouts() throws InterruptedException {
+        // A 300 ms spike on 2% of attempts overruns the 100 ms tile timeout
+        FailureInjector injector = FailureInjector.fromSpec("spike=0.02:300", 9, 0.3);
+        GrayImage[] results = newResults();
+        FaultTolerantConvolution.Report report = new FaultTolerantConvolution(engine,
+                RetryPolicy.exponentialBackoff(6, 1, 2.0, 50, 0.5), 100, injector)
+                .applyAll(source, KERNELS, results, new BitSet());
+        assertTrue(report.isComplete(), report.summary());
+        assertTrue(report.retries() > 0, report.summary());
+        assertMatchesExpected(results);
+    }
+
+    // A run that gives up on some tiles records the rest in the checkpoint; running
+    // again with the same BitSet computes only the missing tiles
+    @Test
+    void resumesFromCheckpoint() throws InterruptedException {
+        GrayImage[] results = newResults();
+        BitSet completed = new BitSet();
+        FaultTolerantConvolution.Report first = new FaultTolerantConvolution(engine, RetryPolicy.immediate(1), 0,
+                FailureInjector.bernoulli(3, 0.5)).applyAll(source, KERNELS, results, completed);
+        assertFalse(first.isComplete(), first.summary());
+        assertEquals(first.tiles() - first.completedTiles(), first.failedRegions().size());
+        assertEquals(first.completedTiles(), completed.cardinality());
+
+        FaultTolerantConvolution.Report resumed = new FaultTolerantConvolution(engine, RetryPolicy.immediate(1), 0)
+                .applyAll(source, KERNELS, results, completed);
+        assertTrue(resumed.isComplete(), resumed.summary());
+        assertEquals(0, resumed.retries());
+        assertEquals(first.tiles(), completed.cardinality());
+        assertMatchesExpected(results);
+    }
+
+    // Every attempt overruns the timeout and the run gives up on each tile unless a late
+    // attempt wins it first; attempts still sleeping must not write once applyAll returns
+    @Test
+    void abandonedAttemptsNeverWrite() throws InterruptedException {
+        GrayImage small = ImageGenerator.generate(96, 96, 2, 1);
+        GrayImage[] results = { new GrayImage(96, 96), new GrayImage(96, 96) };
+        FaultTolerantConvolution.Report report = new FaultTolerantConvolution(engine, RetryPolicy.immediate(0), 20,
+                FailureInjector.fromSpec("spike=1.0:300", 1, 0.0)).applyAll(small, KERNELS, results, new BitSet());
+        assertTrue(report.timeouts() > 0, report.summary());
+        assertEquals(report.tiles() - report.completedTiles(), report.failedRegions().size());
+        GrayImage[] returned = { results[0].copy(), results[1].copy() };
+        Thread.sleep(600);
+        assertTrue(returned[0].contentEquals(results[0]));
+        assertTrue(returned[1].contentEquals(results[1]));
+    }
+
+    @Test
+    void completeCheckpointRunsNothing() throws InterruptedException {
+        GrayImage[] results = newResults();
+        BitSet completed = new BitSet();
+        FaultTolerantConvolution convolution = new FaultTolerantConvolution(engine, RetryPolicy.immediate(0), 0);
+        int tiles = convolution.applyAll(source, KERNELS, results, completed).tiles();
+        GrayImage[] untouched = newResults();
+        FaultTolerantConvolution.Report again = convolution.applyAll(source, KERNELS, untouched, completed);
+        assertEquals(tiles, again.completedTiles());
+        assertTrue(untouched[0].contentEquals(new GrayImage(WIDTH, HEIGHT)));
+    }
+
+    private static GrayImage[] newResults() {
+        return new GrayImage[] { new GrayImage(WIDTH, HEIGHT), new GrayImage(WIDTH, HEIGHT) };
+    }
+
+    private void assertMatchesExpected(GrayImage[] results) {
+        for (int k = 0; k < KERNELS.length; k++) {
+            assertTrue(expected.get(k).contentEquals(results[k]), "kernel " + k);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.Adler32;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageExporterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void adler32CombineMatchesAdler32() {
+        Random random = new Random(42);
+        // 65521 is the Adler modulus; lengths around and above it exercise the reduction
+        int[] lengths = { 0, 1, 2, 100, 5552, 65520, 65521, 65522, 2 * 65521, 300_000 };
+        for (int lengthA : lengths) {
+            for (int lengthB : lengths) {
+                byte[] data = new byte[lengthA + lengthB];
+                random.nextBytes(data);
+                assertEquals(adler(data, 0, data.length), ImageExporter.adler32Combine(adler(data, 0, lengthA),
+                        adler(data, lengthA, lengthB), lengthB), lengthA + " + " + lengthB + " bytes");
+            }
+        }
+    }
+
+    @Test
+    void adler32CombineOverManyChunks() {
+        Random random = new Random(7);
+        byte[] data = new byte[1 << 20];
+        random.nextBytes(data);
+        long combined = 1; // Adler-32 of no bytes
+        int offset = 0;
+        while (offset < data.length) {
+            int length = Math.min(random.nextInt(70_000), data.length - offset);
+            combined = ImageExporter.adler32Combine(combined, adler(data, offset, length), length);
+            offset += length;
+        }
+        assertEquals(adler(data, 0, data.length), combined);
+    }
+
+    // Several deflate chunks, stitched and checksummed with adler32Combine
+    @Test
+    void writePngRoundTrips() throws IOException {
+        GrayImage image = new GrayImage(3001, 1203);
+        new Random(5).nextBytes(image.pixels());
+        Path file = dir.resolve("image.png");
+        ImageExporter.writePng(image, file);
+        BufferedImage read = ImageIO.read(file.toFile());
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, read.getType());
+        assertArrayEquals(image.pixels(), ((DataBufferByte) read.getRaster().getDataBuffer()).getData());
+        Files.delete(file);
+    }
+
+    private static long adler(byte[] data, int offset, int length) {
+        Adler32 adler = new Adler32();
+        adler.update(data, offset, length);
+        return adler.getValue();
+    }
+}
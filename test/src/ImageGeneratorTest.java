@@ -0,0 +1,43 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ImageGeneratorTest {
+    // Enough rows for the fork/join path to split into several tasks; a width that is not
+    // a multiple of eight exercises the partial draw at the end of each row
+    private static final int ROWS = 300;
+    private static final int COLS = 203;
+
+    @Test
+    void sameImageForAnyThreadCount() {
+        GrayImage serial = ImageGenerator.generate(ROWS, COLS, 99, 1);
+        for (int threads : new int[] { 2, 3, 4, 8 }) {
+            assertTrue(serial.contentEquals(ImageGenerator.generate(ROWS, COLS, 99, threads)), threads + " threads");
+        }
+    }
+
+    @Test
+    void stripsMatchTheFullImage() {
+        GrayImage full = ImageGenerator.generate(ROWS, COLS, 5, 4);
+        int stripRows = 70;
+        for (int firstRow = 0; firstRow < ROWS; firstRow += stripRows) {
+            int rows = Math.min(stripRows, ROWS - firstRow);
+            GrayImage strip = new GrayImage(COLS, rows);
+            ImageGenerator.fill(strip, 5, firstRow, firstRow % 2 == 0 ? 1 : 4);
+            for (int y = 0; y < rows; y++) {
+                for (int x = 0; x < COLS; x++) {
+                    assertEquals(full.get(x, firstRow + y), strip.get(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    void seedChangesTheImage() {
+        assertFalse(ImageGenerator.generate(64, 64, 1, 2).contentEquals(ImageGenerator.generate(64, 64, 2, 2)));
+    }
+}
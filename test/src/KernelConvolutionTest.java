@@ -0,0 +1,95 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class KernelConvolutionTest {
+    // Odd sizes, including images narrower or shorter than the kernel and one larger
+    // than a block, so blocks are partial and REFLECT wraps more than once
+    private static final int[][] SIZES = { { 1, 1 }, { 3, 7 }, { 9, 2 }, { 31, 17 }, { 301, 263 } };
+
+    @Test
+    void boxStrategiesMatchTheReference() {
+        for (int size : new int[] { 1, 3, 5, 9, 15 }) {
+            Kernel kernel = Kernel.box(size);
+            assertEquals(Kernel.Strategy.BOX, kernel.strategy());
+            checkStrategies(kernel, Kernel.Strategy.DIRECT, Kernel.Strategy.SEPARABLE, Kernel.Strategy.BOX);
+        }
+    }
+
+    @Test
+    void separableStrategiesMatchTheReference() {
+        for (int size : new int[] { 3, 5, 9, 15 }) {
+            Kernel kernel = Kernel.binomial(size);
+            assertEquals(Kernel.Strategy.SEPARABLE, kernel.strategy());
+            checkStrategies(kernel, Kernel.Strategy.DIRECT, Kernel.Strategy.SEPARABLE);
+        }
+        // Rectangular, with negative weights
+        checkStrategies(Kernel.of(new int[][] { { 1, -2, 1 }, { 2, -4, 2 }, { 1, -2, 1 }, { 3, -6, 3 },
+                { -1, 2, -1 } }, 2), Kernel.Strategy.DIRECT, Kernel.Strategy.SEPARABLE);
+    }
+
+    @Test
+    void directMatchesTheReference() {
+        checkStrategies(Kernel.unsharpMask(7, 2), Kernel.Strategy.DIRECT);
+        checkStrategies(Kernel.of(Task1.EDGE_DETECTION_KERNEL), Kernel.Strategy.DIRECT);
+    }
+
+    // The 3x3 int[][] paths leave a black border; wrapped in Kernel.of, the same kernel
+    // gives identical interior pixels and reads the border through the BorderMode
+    @Test
+    void wrappedThreeByThreeKernelsMatchTheEngineInside() {
+        TiledConvolutionEngine engine = new TiledConvolutionEngine(2, 17, 13);
+        GrayImage source = ImageGenerator.generate(61, 47, 4, 1);
+        for (int[][] weights : new int[][][] { Task1.SHARPEN_KERNEL, Task1.EDGE_DETECTION_KERNEL }) {
+            GrayImage legacy = engine.apply(source, weights);
+            for (BorderMode border : BorderMode.values()) {
+                GrayImage wrapped = engine.apply(source, Kernel.of(weights), border);
+                for (int y = 1; y < source.height() - 1; y++) {
+                    for (int x = 1; x < source.width() - 1; x++) {
+                        assertEquals(legacy.get(x, y), wrapped.get(x, y), border + " (" + x + ", " + y + ")");
+                    }
+                }
+            }
+        }
+    }
+
+    private static void checkStrategies(Kernel kernel, Kernel.Strategy... strategies) {
+        for (int[] size : SIZES) {
+            GrayImage source = ImageGenerator.generate(size[1], size[0], size[0] * 31 + size[1], 1);
+            for (BorderMode border : BorderMode.values()) {
+                GrayImage expected = reference(source, kernel, border);
+                for (Kernel.Strategy strategy : strategies) {
+                    GrayImage actual = new GrayImage(source.width(), source.height());
+                    KernelConvolution.convolve(source, kernel, strategy, border, actual, 0, 0, source.width(),
+                            source.height());
+                    assertTrue(expected.contentEquals(actual),
+                            kernel + " " + strategy + " " + border + " on " + size[0] + "x" + size[1]);
+                }
+            }
+        }
+    }
+
+    // Straightforward per-pixel sum through BorderMode.map
+    private static GrayImage reference(GrayImage source, Kernel kernel, BorderMode border) {
+        GrayImage result = new GrayImage(source.width(), source.height());
+        for (int y = 0; y < source.height(); y++) {
+            for (int x = 0; x < source.width(); x++) {
+                long sum = 0;
+                for (int ky = 0; ky < kernel.height(); ky++) {
+                    int sy = border.map(y + ky - kernel.radiusY(), source.height());
+                    for (int kx = 0; kx < kernel.width(); kx++) {
+                        int sx = border.map(x + kx - kernel.radiusX(), source.width());
+                        if (sx >= 0 && sy >= 0) {
+                            sum += (long) kernel.weight(kx, ky) * source.get(sx, sy);
+                        }
+                    }
+                }
+                result.set(x, y, kernel.finish(sum));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,144 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.Test;
+
+class MpmcQueueTest {
+    private static final int PRODUCERS = 4;
+    private static final int CONSUMERS = 4;
+    private static final int PER_PRODUCER = 50_000;
+
+    @Test
+    void batchesWrapAroundInOrder() {
+        MpmcQueue<Integer> queue = new MpmcQueue<>(4);
+        List<Integer> drained = new ArrayList<>();
+        int next = 0;
+        // Batches of 3 in a ring of 4 start at every slot offset over the laps
+        for (int lap = 0; lap < 100; lap++) {
+            List<Integer> batch = Arrays.asList(next, next + 1, next + 2);
+            assertEquals(3, queue.offerAll(batch, 0));
+            assertEquals(3, queue.drainTo(drained, 10));
+            next += 3;
+        }
+        assertEquals(0, queue.drainTo(drained, 10));
+        for (int i = 0; i < next; i++) {
+            assertEquals(i, drained.get(i));
+        }
+    }
+
+    @Test
+    void offerAllStopsWhenFull() {
+        MpmcQueue<Integer> queue = new MpmcQueue<>(4);
+        assertTrue(queue.offer(-1));
+        assertEquals(3, queue.offerAll(Arrays.asList(0, 1, 2, 3, 4), 0));
+        assertEquals(-1, queue.poll());
+        assertEquals(1, queue.offerAll(Arrays.asList(0, 1, 2, 3, 4), 3));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, queue.drainTo(drained, 10));
+        assertEquals(Arrays.asList(0, 1, 2, 3), drained);
+        assertNull(queue.poll());
+    }
+
+    // A small ring under many producers and consumers wraps thousands of times; every
+    // element must come out exactly once, and each consumer must see any one
+    // producer's elements in the order they were added
+    @Test
+    void wrapsAroundUnderContention() throws InterruptedException {
+        MpmcQueue<Integer> queue = new MpmcQueue<>(8);
+        int total = PRODUCERS * PER_PRODUCER;
+        AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        AtomicInteger consumed = new AtomicInteger();
+        ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            threads.add(new Thread(() -> {
+                int base = producer * PER_PRODUCER;
+                try {
+                    if (producer % 2 == 0) {
+                        for (int i = 0; i < PER_PRODUCER; i++) {
+                            queue.put(base + i);
+                        }
+                    } else {
+                        List<Integer> batch = new ArrayList<>();
+                        for (int i = 0; i < PER_PRODUCER; i += 5) {
+                            batch.clear();
+                            for (int j = i; j < Math.min(i + 5, PER_PRODUCER); j++) {
+                                batch.add(base + j);
+                            }
+                            int from = 0;
+                            while (from < batch.size()) {
+                                int added = queue.offerAll(batch, from);
+                                if (added == 0) {
+                                    Thread.yield();
+                                }
+                                from += added;
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    errors.add("producer " + producer + " interrupted");
+                }
+            }));
+        }
+        for (int c = 0; c < CONSUMERS; c++) {
+            int consumer = c;
+            threads.add(new Thread(() -> {
+                int[] lastSeen = new int[PRODUCERS];
+                Arrays.fill(lastSeen, -1);
+                List<Integer> batch = new ArrayList<>();
+                while (consumed.get() < total) {
+                    batch.clear();
+                    if (consumer % 2 == 0) {
+                        queue.drainTo(batch, 6);
+                    } else {
+                        Integer element = queue.poll();
+                        if (element != null) {
+                            batch.add(element);
+                        }
+                    }
+                    if (batch.isEmpty()) {
+                        Thread.yield();
+                        continue;
+                    }
+                    for (int element : batch) {
+                        int producer = element / PER_PRODUCER;
+                        int sequence = element % PER_PRODUCER;
+                        if (sequence <= lastSeen[producer]) {
+                            errors.add("consumer " + consumer + " saw " + sequence + " after " + lastSeen[producer]);
+                        }
+                        lastSeen[producer] = sequence;
+                        if (seen.getAndIncrement(element) != 0) {
+                            errors.add("element " + element + " taken twice");
+                        }
+                    }
+                    consumed.addAndGet(batch.size());
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(60_000);
+            assertTrue(!thread.isAlive(), "queue test thread did not finish");
+        }
+        assertTrue(errors.isEmpty(), () -> errors.iterator().next());
+        assertEquals(total, consumed.get());
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, seen.get(i), "element " + i);
+        }
+        assertNull(queue.poll());
+    }
+}
@@ -0,0 +1,99 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class RetrySchedulerTest {
+    // Generous, so a loaded machine does not fail the test; early firing is checked exactly
+    private static final long LATENESS_MILLIS = 250;
+
+    // A small wheel (8 buckets of 5 ms, one rotation every 40 ms), so most delays wait
+    // several full rotations in their bucket
+    @Test
+    void actionsRunAfterTheirDelayAcrossRotations() throws InterruptedException {
+        RetryScheduler scheduler = new RetryScheduler(5, 8);
+        try {
+            long[] delays = { 0, 1, 4, 5, 6, 39, 40, 41, 80, 123, 200, 333 };
+            long[] ranAt = new long[delays.length];
+            long[] scheduledAt = new long[delays.length];
+            CountDownLatch done = new CountDownLatch(delays.length);
+            for (int i = 0; i < delays.length; i++) {
+                int index = i;
+                scheduledAt[i] = System.nanoTime();
+                scheduler.schedule(() -> {
+                    ranAt[index] = System.nanoTime();
+                    done.countDown();
+                }, delays[i]);
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < delays.length; i++) {
+                long elapsed = ranAt[i] - scheduledAt[i];
+                assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(delays[i]),
+                        "delay " + delays[i] + " ms ran after " + elapsed / 1e6 + " ms");
+                assertTrue(elapsed <= TimeUnit.MILLISECONDS.toNanos(delays[i] + LATENESS_MILLIS),
+                        "delay " + delays[i] + " ms ran after " + elapsed / 1e6 + " ms");
+            }
+            assertEquals(0, scheduler.pendingCount());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    // Delays that are several ticks apart fire in delay order, whatever the order they
+    // were scheduled in and whichever bucket they share
+    @Test
+    void actionsRunInDelayOrder() throws InterruptedException {
+        RetryScheduler scheduler = new RetryScheduler(2, 4);
+        try {
+            List<Long> delays = new ArrayList<>();
+            for (long delay = 0; delay <= 150; delay += 10) {
+                delays.add(delay);
+            }
+            Collections.shuffle(delays, new Random(3));
+            List<Long> fired = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch done = new CountDownLatch(delays.size());
+            for (long delay : delays) {
+                scheduler.schedule(() -> {
+                    fired.add(delay);
+                    done.countDown();
+                }, delay);
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            List<Long> sorted = new ArrayList<>(fired);
+            Collections.sort(sorted);
+            assertEquals(sorted, fired);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void shutdownDiscardsPendingAndRejectsNewActions() throws InterruptedException {
+        RetryScheduler scheduler = new RetryScheduler();
+        AtomicBoolean ran = new AtomicBoolean();
+        scheduler.schedule(() -> ran.set(true), 200);
+        scheduler.shutdown();
+        Thread.sleep(300);
+        assertFalse(ran.get());
+        assertThrows(RejectedExecutionException.class, () -> scheduler.schedule(() -> { }, 0));
+    }
+
+    @Test
+    void invalidWheelsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryScheduler(0, 8));
+        assertThrows(IllegalArgumentException.class, () -> new RetryScheduler(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RetryScheduler(10, (1 << 20) + 1));
+    }
+}
@@ -0,0 +1,131 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class TaskQueueTest {
+    @Test
+    void rejectThrowsWhenFull() {
+        Task4.TaskQueue queue = new Task4.TaskQueue(null, 2, RejectionPolicy.REJECT);
+        queue.addTask(new Task4.Task(1));
+        queue.addTask(new Task4.Task(2));
+        assertThrows(RejectedExecutionException.class, () -> queue.addTask(new Task4.Task(3)));
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    void callerRunsLeavesTheTaskToTheCaller() {
+        Task4.TaskQueue queue = new Task4.TaskQueue(null, 1, RejectionPolicy.CALLER_RUNS);
+        assertTrue(queue.addTask(new Task4.Task(1)));
+        assertFalse(queue.addTask(new Task4.Task(2)));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void dropOldestEvictsTheHead() {
+        Task4.TaskQueue queue = new Task4.TaskQueue(null, 2, RejectionPolicy.DROP_OLDEST);
+        for (int id = 1; id <= 4; id++) {
+            assertTrue(queue.addTask(new Task4.Task(id)));
+        }
+        assertEquals(2, queue.droppedCount());
+        assertEquals(3, queue.getTask().getId());
+        assertEquals(4, queue.getTask().getId());
+    }
+
+    @Test
+    void blockWaitsForSpace() throws InterruptedException {
+        Task4.TaskQueue queue = new Task4.TaskQueue(null, 1, RejectionPolicy.BLOCK);
+        queue.addTask(new Task4.Task(1));
+        Thread producer = new Thread(() -> queue.addTask(new Task4.Task(2)));
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive(), "producer should wait for space");
+        assertEquals(1, queue.getTask().getId());
+        producer.join(5_000);
+        assertFalse(producer.isAlive());
+        assertEquals(2, queue.getTask().getId());
+    }
+
+    @Test
+    void submitAllReturnsTheRefusedTail() {
+        Task4.TaskQueue queue = new Task4.TaskQueue(null, 2, RejectionPolicy.REJECT);
+        List<Task4.Task> refused = queue.submitAll(
+                Arrays.asList(new Task4.Task(1), new Task4.Task(2), new Task4.Task(3), new Task4.Task(4)));
+        assertEquals(2, queue.size());
+        assertEquals(2, refused.size());
+        assertEquals(3, refused.get(0).getId());
+        assertEquals(4, refused.get(1).getId());
+    }
+
+    // Retries were accepted once already, so they go in even above capacity; a
+    // producer blocked meanwhile must still be woken as the queue drains
+    @Test
+    void retriesBypassTheBound() throws InterruptedException {
+        Task4.TaskQueue queue = new Task4.TaskQueue(null, 1, RejectionPolicy.BLOCK);
+        queue.addTask(new Task4.Task(1));
+        queue.retryLater(new Task4.Task(2), 0);
+        queue.retryLater(new Task4.Task(3), 0);
+        assertEquals(3, queue.size());
+
+        AtomicBoolean added = new AtomicBoolean();
+        Thread producer = new Thread(() -> added.set(queue.addTask(new Task4.Task(4))));
+        producer.start();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(queue.getTask().getId());
+        }
+        producer.join(5_000);
+        assertTrue(added.get());
+        assertEquals(Arrays.asList(1, 2, 3, 4), ids);
+    }
+
+    @Test
+    void scheduledRetryReturnsAfterItsDelay() throws InterruptedException {
+        RetryScheduler scheduler = new RetryScheduler();
+        try {
+            Task4.TaskQueue queue = new Task4.TaskQueue(scheduler, 1, RejectionPolicy.REJECT);
+            queue.addTask(new Task4.Task(1));
+            long start = System.nanoTime();
+            queue.retryLater(new Task4.Task(2), 50);
+            queue.shutdown();
+            assertEquals(1, queue.getTask().getId());
+            // After shutdown the queue still waits for the pending retry
+            assertEquals(2, queue.getTask().getId());
+            assertTrue(System.nanoTime() - start >= 40_000_000L);
+            assertNull(queue.getTask());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    // An interrupt must not make the wait spin, and is still visible to the caller
+    @Test
+    void getTaskKeepsWaitingThroughAnInterrupt() throws InterruptedException {
+        Task4.TaskQueue queue = new Task4.TaskQueue();
+        AtomicReference<Task4.Task> taken = new AtomicReference<>();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread worker = new Thread(() -> {
+            Thread.currentThread().interrupt();
+            taken.set(queue.getTask());
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        worker.start();
+        Thread.sleep(100);
+        assertTrue(worker.isAlive());
+        queue.addTask(new Task4.Task(7));
+        worker.join(5_000);
+        assertEquals(7, taken.get().getId());
+        assertTrue(interrupted.get());
+    }
+}
@@ -0,0 +1,65 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TileChecksumsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void saveThenLoadRoundTrips() throws IOException {
+        TiledConvolutionEngine engine = new TiledConvolutionEngine(2, 64, 48);
+        // Sizes that do not divide into whole tiles, so edge tiles are partial
+        List<TileChecksums> saved = Arrays.asList(
+                TileChecksums.compute(ImageGenerator.generate(150, 200, 1, 2), engine),
+                TileChecksums.compute(ImageGenerator.generate(37, 91, 2, 2), engine));
+        Path file = dir.resolve("digests.bin");
+        TileChecksums.save(file, 42, saved);
+
+        List<TileChecksums> loaded = TileChecksums.load(file, 42);
+        assertEquals(saved.size(), loaded.size());
+        for (int k = 0; k < saved.size(); k++) {
+            assertEquals(saved.get(k).tiles(), loaded.get(k).tiles());
+            for (int tile = 0; tile < saved.get(k).tiles(); tile++) {
+                assertEquals(saved.get(k).digest(tile), loaded.get(k).digest(tile));
+                assertEquals(saved.get(k).tileBounds(tile), loaded.get(k).tileBounds(tile));
+            }
+            assertTrue(saved.get(k).mismatches(loaded.get(k)).isEmpty());
+        }
+    }
+
+    @Test
+    void loadedDigestsFindAChangedTile() throws IOException {
+        TiledConvolutionEngine engine = new TiledConvolutionEngine(2, 32, 32);
+        GrayImage image = ImageGenerator.generate(100, 100, 3, 2);
+        Path file = dir.resolve("digests.bin");
+        TileChecksums.save(file, 3, Arrays.asList(TileChecksums.compute(image, engine)));
+
+        image.set(70, 40, image.get(70, 40) ^ 1);
+        TileChecksums changed = TileChecksums.compute(image, engine);
+        assertEquals(1, changed.mismatches(TileChecksums.load(file, 3).get(0)).size());
+    }
+
+    @Test
+    void loadRejectsAnotherKeyOrFormat() throws IOException {
+        TiledConvolutionEngine engine = new TiledConvolutionEngine(1, 32, 32);
+        Path file = dir.resolve("digests.bin");
+        GrayImage image = ImageGenerator.generate(40, 40, 1, 1);
+        TileChecksums.save(file, 1, Arrays.asList(TileChecksums.compute(image, engine)));
+        assertThrows(IOException.class, () -> TileChecksums.load(file, 2));
+
+        Path other = dir.resolve("other.bin");
+        Files.write(other, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 });
+        assertThrows(IOException.class, () -> TileChecksums.load(other, 1));
+    }
+}
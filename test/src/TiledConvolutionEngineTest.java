@@ -0,0 +1,75 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class TiledConvolutionEngineTest {
+    private static final int[][][] KERNELS = { Task1.SHARPEN_KERNEL, Task1.EDGE_DETECTION_KERNEL };
+
+    @Test
+    void applyAllMatchesGoldStandard() {
+        TiledConvolutionEngine engine = new TiledConvolutionEngine(2, 17, 13);
+        GrayImage source = ImageGenerator.generate(101, 157, 1, 1);
+        List<GrayImage> results = engine.applyAll(source, Arrays.asList(KERNELS));
+        for (int k = 0; k < KERNELS.length; k++) {
+            GrayImage expected = new GrayImage(source.width(), source.height());
+            Task1.applyKernel(source, KERNELS[k], expected, 0, source.height());
+            assertTrue(expected.contentEquals(results.get(k)), "kernel " + k);
+        }
+    }
+
+    // Random edits, including rectangles that overhang the image or are empty, must
+    // leave the results exactly as a full recompute of the edited image would
+    @Test
+    void dirtyUpdateMatchesFullRecompute() {
+        Random random = new Random(1);
+        TiledConvolutionEngine engine = new TiledConvolutionEngine(2, 17, 13);
+        for (int iteration = 0; iteration < 200; iteration++) {
+            int width = 1 + random.nextInt(120);
+            int height = 1 + random.nextInt(120);
+            GrayImage source = ImageGenerator.generate(height, width, iteration, 1);
+            GrayImage[] results = { new GrayImage(width, height), new GrayImage(width, height) };
+            engine.applyAll(source, KERNELS, results);
+
+            List<Rectangle> dirty = new ArrayList<>();
+            for (int edits = random.nextInt(4); edits >= 0; edits--) {
+                Rectangle edit = new Rectangle(random.nextInt(width + 20) - 10, random.nextInt(height + 20) - 10,
+                        random.nextInt(30), random.nextInt(30));
+                dirty.add(edit);
+                for (int y = Math.max(edit.y, 0); y < Math.min(edit.y + edit.height, height); y++) {
+                    for (int x = Math.max(edit.x, 0); x < Math.min(edit.x + edit.width, width); x++) {
+                        source.set(x, y, random.nextInt(256));
+                    }
+                }
+            }
+            engine.updateAll(source, KERNELS, results, dirty);
+
+            List<GrayImage> expected = engine.applyAll(source, Arrays.asList(KERNELS));
+            for (int k = 0; k < KERNELS.length; k++) {
+                assertTrue(expected.get(k).contentEquals(results[k]), "iteration " + iteration + ", kernel " + k);
+            }
+        }
+    }
+
+    @Test
+    void singleKernelUpdateMatchesFullRecompute() {
+        TiledConvolutionEngine engine = new TiledConvolutionEngine(2);
+        GrayImage source = ImageGenerator.generate(600, 700, 3, 1);
+        GrayImage result = engine.apply(source, Task1.SHARPEN_KERNEL);
+        Rectangle edit = new Rectangle(250, 250, 20, 20);
+        for (int y = edit.y; y < edit.y + edit.height; y++) {
+            for (int x = edit.x; x < edit.x + edit.width; x++) {
+                source.set(x, y, 255 - source.get(x, y));
+            }
+        }
+        engine.update(source, Task1.SHARPEN_KERNEL, result, Collections.singletonList(edit));
+        assertTrue(engine.apply(source, Task1.SHARPEN_KERNEL).contentEquals(result));
+    }
+}
@@ -0,0 +1,81 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.Test;
+
+class WorkStealingDequeTest {
+    @Test
+    void ownerPopsNewestAndThievesStealOldest() {
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        // Well past the initial capacity, so the ring grows
+        for (int i = 0; i < 1000; i++) {
+            deque.push(i);
+        }
+        assertEquals(1000, deque.size());
+        assertEquals(0, deque.steal());
+        assertEquals(999, deque.pop());
+        assertEquals(1, deque.steal());
+        for (int i = 998; i >= 2; i--) {
+            assertEquals(i, deque.pop());
+        }
+        assertNull(deque.pop());
+        assertNull(deque.steal());
+        assertTrue(deque.isEmpty());
+    }
+
+    // The owner pushes and pops while thieves steal; every element must be taken
+    // exactly once, including the last-element races between pop and steal
+    @Test
+    void everyElementIsTakenOnceUnderStealing() throws InterruptedException {
+        int total = 200_000;
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        AtomicIntegerArray taken = new AtomicIntegerArray(total);
+        AtomicBoolean ownerDone = new AtomicBoolean();
+        ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+        List<Thread> thieves = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            thieves.add(new Thread(() -> {
+                while (!ownerDone.get() || !deque.isEmpty()) {
+                    Integer element = deque.steal();
+                    if (element == null) {
+                        Thread.yield();
+                    } else if (taken.getAndIncrement(element) != 0) {
+                        errors.add("stole " + element + " twice");
+                    }
+                }
+            }));
+        }
+        for (Thread thief : thieves) {
+            thief.start();
+        }
+        int next = 0;
+        while (next < total) {
+            // Short bursts keep the deque near empty, where pop and steal race
+            for (int i = 0; i < 3 && next < total; i++) {
+                deque.push(next++);
+            }
+            for (int i = 0; i < 2; i++) {
+                Integer element = deque.pop();
+                if (element != null && taken.getAndIncrement(element) != 0) {
+                    errors.add("popped " + element + " twice");
+                }
+            }
+        }
+        ownerDone.set(true);
+        for (Thread thief : thieves) {
+            thief.join(60_000);
+        }
+        assertTrue(errors.isEmpty(), () -> errors.iterator().next());
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, taken.get(i), "element " + i);
+        }
+    }
+}